@@ -0,0 +1,47 @@
+package searchengine.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saved HTML pages bundled under src/jmh/resources/corpus, listed in pages.txt.
+ */
+public final class Corpus {
+    private static final String ROOT = "/corpus/";
+
+    private Corpus() {
+    }
+
+    public static List<String> pages() {
+        List<String> pages = new ArrayList<>();
+        for (String name : read("pages.txt").split("\n")) {
+            if (!name.isBlank()) {
+                pages.add(read(name.trim()));
+            }
+        }
+        return pages;
+    }
+
+    private static String read(String name) {
+        try (InputStream in = Corpus.class.getResourceAsStream(ROOT + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Corpus file not found: " + name);
+            }
+            StringBuilder content = new StringBuilder();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                content.append(line).append('\n');
+            }
+            return content.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
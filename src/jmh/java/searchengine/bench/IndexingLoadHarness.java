@@ -0,0 +1,112 @@
+package searchengine.bench;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import searchengine.Application;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
+import searchengine.services.IndexingService;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * End-to-end crawl throughput: runs IndexingService against {@link SyntheticSiteServer}
+ * with an in-memory H2 database in place of MySQL.
+ *
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec@indexing-harness -Dharness.args="pages=2000 fanOut=10 latencyMs=5"
+ * </pre>
+ * Options: pages, fanOut, pageSize (characters), latencyMs, errorRate.
+ */
+public class IndexingLoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int pages = Integer.parseInt(options.getOrDefault("pages", "1000"));
+        int fanOut = Integer.parseInt(options.getOrDefault("fanOut", "8"));
+        int pageSize = Integer.parseInt(options.getOrDefault("pageSize", "8000"));
+        int latencyMs = Integer.parseInt(options.getOrDefault("latencyMs", "5"));
+        double errorRate = Double.parseDouble(options.getOrDefault("errorRate", "0.01"));
+
+        try (SyntheticSiteServer server = new SyntheticSiteServer(pages, fanOut, pageSize, latencyMs, errorRate);
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                     .run(springArguments(server.rootUrl(), false))) {
+            IndexingService indexingService = context.getBean(IndexingService.class);
+            PageRepository pageRepository = context.getBean(PageRepository.class);
+            LemmaRepository lemmaRepository = context.getBean(LemmaRepository.class);
+            IndexRepository indexRepository = context.getBean(IndexRepository.class);
+
+            long gcCountBefore = gcCount();
+            long gcTimeBefore = gcTime();
+            long start = System.nanoTime();
+            indexingService.startIndexing();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long pageRows = pageRepository.count();
+            long writes = pageRows + lemmaRepository.count() + indexRepository.count();
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+            System.out.printf("Synthetic site: %d pages, fan-out %d, %d chars, %d ms latency, %.2f error rate%n",
+                    pages, fanOut, pageSize, latencyMs, errorRate);
+            System.out.printf("HTTP requests:  %d (%d errors)%n", server.getRequests(), server.getErrors());
+            System.out.printf("Elapsed:        %.2f s%n", seconds);
+            System.out.printf("Pages indexed:  %d (%.1f pages/s)%n", pageRows, pageRows / seconds);
+            System.out.printf("DB rows:        %d (%.1f writes/s)%n", writes, writes / seconds);
+            System.out.printf("Heap used:      %d MB of %d MB%n",
+                    memory.getHeapMemoryUsage().getUsed() >> 20, memory.getHeapMemoryUsage().getMax() >> 20);
+            System.out.printf("GC:             %d collections, %d ms%n",
+                    gcCount() - gcCountBefore, gcTime() - gcTimeBefore);
+        }
+    }
+
+    /**
+     * Accepts both separate {@code key=value} arguments and a single space-separated string,
+     * which is how exec-maven-plugin passes {@code -Dharness.args}.
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : String.join(" ", args).trim().split("\\s+")) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length == 2) {
+                options.put(pair[0], pair[1]);
+            }
+        }
+        return options;
+    }
+
+    static String[] springArguments(String rootUrl, boolean web) {
+        return new String[]{
+                web ? "--server.port=0" : "--spring.main.web-application-type=none",
+                "--spring.datasource.url=jdbc:h2:mem:harness;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--indexing-settings.sites[0].url=" + rootUrl,
+                "--indexing-settings.sites[0].name=Synthetic",
+                "--crawler-settings.min-delay-ms=0",
+                "--crawler-settings.max-delay-ms=0",
+                "--snapshot.enabled=false",
+                "--segment-index.enabled=false"
+        };
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+}
@@ -0,0 +1,53 @@
+package searchengine.bench;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import searchengine.services.LemmaExtractor;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LemmaExtractorBenchmark {
+    private LemmaExtractor lemmaExtractor;
+    private List<String> texts;
+    private List<Document> documents;
+
+    @Setup
+    public void setUp() throws IOException {
+        lemmaExtractor = new LemmaExtractor();
+        documents = Corpus.pages().stream()
+                .map(Jsoup::parse)
+                .toList();
+        texts = documents.stream()
+                .map(Document::text)
+                .toList();
+    }
+
+    @Benchmark
+    public void extractLemmas(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(lemmaExtractor.extractLemmas(text));
+        }
+    }
+
+    @Benchmark
+    public void extractFieldFrequencies(Blackhole blackhole) {
+        for (Document document : documents) {
+            blackhole.consume(lemmaExtractor.rank(lemmaExtractor.extractFieldFrequencies(document)));
+        }
+    }
+
+    @Benchmark
+    public void lemmatizeQuery(Blackhole blackhole) {
+        blackhole.consume(lemmaExtractor.getLemmaSet("летние чтения для подростков в библиотеке"));
+    }
+}
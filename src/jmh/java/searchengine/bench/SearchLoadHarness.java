@@ -0,0 +1,219 @@
+package searchengine.bench;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import searchengine.Application;
+import searchengine.index.TermDictionary;
+import searchengine.services.IndexingService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for /api/search. Requests are scheduled at a fixed rate and latency
+ * is measured from the scheduled start, so a stalled server is not hidden by waiting clients.
+ *
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec@search-harness -Dharness.args="qps=200 concurrency=32"
+ * </pre>
+ * Without {@code target} the harness indexes a synthetic site into an in-memory database and
+ * starts the application on a random port, so it runs offline. Queries are read from a log file
+ * ({@code queries}, one query per line, optional tab and site url) or drawn from the lemma
+ * dictionary with Zipf-distributed popularity.
+ * Options: target, queries, qps, concurrency, durationSeconds, warmupSeconds, limit, timeoutMs,
+ * pages, queryCount, maxTerms, zipf.
+ */
+public class SearchLoadHarness {
+
+    private record Query(String text, String site) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = IndexingLoadHarness.parseOptions(args);
+        String target = options.get("target");
+        if (target == null) {
+            int pages = Integer.parseInt(options.getOrDefault("pages", "2000"));
+            try (SyntheticSiteServer server = new SyntheticSiteServer(pages, 8, 8000, 0, 0);
+                 ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                         .run(IndexingLoadHarness.springArguments(server.rootUrl(), true))) {
+                context.getBean(IndexingService.class).startIndexing();
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                List<Query> queries = options.containsKey("queries")
+                        ? readQueryLog(options.get("queries"))
+                        : synthesizeQueries(context.getBean(TermDictionary.class), options);
+                run("http://127.0.0.1:" + port, queries, options);
+            }
+        } else {
+            if (!options.containsKey("queries")) {
+                throw new IllegalArgumentException("A query log is required when running against a remote target");
+            }
+            run(target, readQueryLog(options.get("queries")), options);
+        }
+    }
+
+    private static void run(String target, List<Query> queries, Map<String, String> options) throws InterruptedException {
+        if (queries.isEmpty()) {
+            throw new IllegalStateException("No queries to replay");
+        }
+        int qps = Integer.parseInt(options.getOrDefault("qps", "100"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("durationSeconds", "30"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmupSeconds", "5"));
+        int limit = Integer.parseInt(options.getOrDefault("limit", "20"));
+        long timeoutMs = Long.parseLong(options.getOrDefault("timeoutMs", "5000"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+        Recorder recorder = new Recorder(3);
+        LongAdder completed = new LongAdder();
+        LongAdder errors = new LongAdder();
+        LongAdder partial = new LongAdder();
+        AtomicLong sequence = new AtomicLong();
+
+        long intervalNanos = 1_000_000_000L / qps;
+        long start = System.nanoTime();
+        long measureFrom = start + warmupSeconds * 1_000_000_000L;
+        long end = measureFrom + durationSeconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        for (int w = 0; w < concurrency; w++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    while (true) {
+                        long n = sequence.getAndIncrement();
+                        long intended = start + n * intervalNanos;
+                        if (intended >= end) {
+                            return;
+                        }
+                        long wait;
+                        while ((wait = intended - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        Query query = queries.get((int) (n % queries.size()));
+                        int status = send(client, target, query, limit, timeoutMs);
+                        if (intended < measureFrom) {
+                            continue;
+                        }
+                        recorder.recordValue(Math.max(1, (System.nanoTime() - intended) / 1000));
+                        completed.increment();
+                        if (status < 0) {
+                            errors.increment();
+                        } else if (status == 1) {
+                            partial.increment();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "search-load-" + w);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+
+        Histogram histogram = recorder.getIntervalHistogram();
+        System.out.printf("Target:        %s, %d queries in rotation%n", target, queries.size());
+        System.out.printf("Offered load:  %d qps, concurrency %d, %d s (+%d s warm-up)%n",
+                qps, concurrency, durationSeconds, warmupSeconds);
+        System.out.printf("Throughput:    %.1f req/s%n", completed.sum() / (double) durationSeconds);
+        System.out.printf("Requests:      %d (%d errors, %d partial)%n", completed.sum(), errors.sum(), partial.sum());
+        System.out.printf("Latency (ms):  p50 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * Returns 0 for a complete answer, 1 for a partial one and -1 for an error.
+     */
+    private static int send(HttpClient client, String target, Query query, int limit, long timeoutMs) {
+        StringBuilder uri = new StringBuilder(target).append("/api/search?limit=").append(limit)
+                .append("&query=").append(URLEncoder.encode(query.text(), StandardCharsets.UTF_8));
+        if (query.site() != null) {
+            uri.append("&site=").append(URLEncoder.encode(query.site(), StandardCharsets.UTF_8));
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri.toString()))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .GET()
+                .build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200 || !response.body().contains("\"result\":true")) {
+                return -1;
+            }
+            return response.body().contains("\"partial\":true") ? 1 : 0;
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static List<Query> readQueryLog(String path) throws IOException {
+        List<Query> queries = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t", 2);
+            queries.add(new Query(fields[0].trim(), fields.length > 1 && !fields[1].isBlank() ? fields[1].trim() : null));
+        }
+        return queries;
+    }
+
+    private static List<Query> synthesizeQueries(TermDictionary termDictionary, Map<String, String> options) {
+        int queryCount = Integer.parseInt(options.getOrDefault("queryCount", "10000"));
+        int maxTerms = Integer.parseInt(options.getOrDefault("maxTerms", "3"));
+        double exponent = Double.parseDouble(options.getOrDefault("zipf", "1.0"));
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (Integer siteId : termDictionary.siteIds()) {
+            termDictionary.lemmas(siteId).forEach((lemma, docFreq) -> frequencies.merge(lemma, docFreq, Integer::sum));
+        }
+        List<String> vocabulary = new ArrayList<>(frequencies.keySet());
+        vocabulary.sort(Comparator.comparing(frequencies::get, Comparator.reverseOrder()));
+        if (vocabulary.isEmpty()) {
+            return List.of();
+        }
+
+        Zipf zipf = new Zipf(vocabulary.size(), exponent);
+        Random random = new Random(42);
+        List<Query> queries = new ArrayList<>(queryCount);
+        for (int i = 0; i < queryCount; i++) {
+            int terms = 1 + random.nextInt(maxTerms);
+            StringBuilder text = new StringBuilder();
+            for (int t = 0; t < terms; t++) {
+                if (t > 0) {
+                    text.append(' ');
+                }
+                text.append(vocabulary.get(zipf.sample(random)));
+            }
+            queries.add(new Query(text.toString(), null));
+        }
+        return queries;
+    }
+}
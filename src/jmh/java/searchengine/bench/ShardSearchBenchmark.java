@@ -0,0 +1,130 @@
+package searchengine.bench;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import searchengine.config.MetricsSettings;
+import searchengine.config.SegmentIndexSettings;
+import searchengine.index.PostingList;
+import searchengine.index.SegmentIndex;
+import searchengine.metrics.HotPathMetrics;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.search.Deadline;
+import searchengine.search.SiteShardSearcher;
+import searchengine.services.LemmaExtractor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posting-list intersection and scoring of a site shard over a synthetic segment index.
+ * Page lemma frequencies follow a Zipf distribution over the corpus vocabulary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardSearchBenchmark {
+    @Param({"20000"})
+    private int pages;
+
+    @Param({"10", "100"})
+    private int topK;
+
+    private Path directory;
+    private SegmentIndex segmentIndex;
+    private SiteShardSearcher searcher;
+    private Site site;
+    private List<String> commonQuery;
+    private List<String> rareQuery;
+    private PostingList first;
+    private PostingList second;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> vocabulary = vocabulary();
+        directory = Files.createTempDirectory("shard-bench");
+
+        SegmentIndexSettings settings = new SegmentIndexSettings();
+        settings.setEnabled(true);
+        settings.setDirectory(directory.toString());
+        settings.setFlushDocs(2000);
+        settings.setMergeIntervalSeconds(3600);
+        MetricsSettings metricsSettings = new MetricsSettings();
+        metricsSettings.setEnabled(false);
+        HotPathMetrics metrics = new HotPathMetrics(new SimpleMeterRegistry(), metricsSettings);
+
+        segmentIndex = new SegmentIndex(settings, metrics);
+        segmentIndex.open();
+        site = new Site();
+        site.setId(1);
+
+        Zipf zipf = new Zipf(vocabulary.size(), 1.0);
+        Random random = new Random(42);
+        for (int id = 1; id <= pages; id++) {
+            Page page = new Page();
+            page.setId(id);
+            page.setSite(site);
+            Map<String, Float> ranks = new HashMap<>();
+            for (int i = 0; i < 200; i++) {
+                ranks.merge(vocabulary.get(zipf.sample(random)), 1f, Float::sum);
+            }
+            segmentIndex.addPage(page, ranks);
+        }
+        segmentIndex.flush(site);
+
+        searcher = new SiteShardSearcher(segmentIndex, null, metrics);
+        commonQuery = List.of(vocabulary.get(0), vocabulary.get(1), vocabulary.get(2));
+        rareQuery = List.of(vocabulary.get(0), vocabulary.get(vocabulary.size() / 2));
+        first = segmentIndex.postings(site, vocabulary.get(0));
+        second = segmentIndex.postings(site, vocabulary.get(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        segmentIndex.close();
+        try (var files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void commonTerms(Blackhole blackhole) {
+        blackhole.consume(searcher.search(site, commonQuery, topK, Deadline.after(10_000)));
+    }
+
+    @Benchmark
+    public void rareTerm(Blackhole blackhole) {
+        blackhole.consume(searcher.search(site, rareQuery, topK, Deadline.after(10_000)));
+    }
+
+    @Benchmark
+    public void mergePostings(Blackhole blackhole) {
+        blackhole.consume(PostingList.merge(first, second));
+    }
+
+    private static List<String> vocabulary() throws IOException {
+        LemmaExtractor lemmaExtractor = new LemmaExtractor();
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String html : Corpus.pages()) {
+            lemmaExtractor.extractLemmas(Jsoup.parse(html).text()).forEach((lemma, count) -> frequencies.merge(lemma, count, Integer::sum));
+        }
+        List<String> vocabulary = new ArrayList<>(frequencies.keySet());
+        vocabulary.sort(Comparator.comparing(frequencies::get, Comparator.reverseOrder()));
+        return vocabulary;
+    }
+}
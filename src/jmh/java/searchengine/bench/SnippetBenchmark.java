@@ -0,0 +1,39 @@
+package searchengine.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import searchengine.utils.SnippetGenerator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnippetBenchmark {
+    private final SnippetGenerator snippetGenerator = new SnippetGenerator();
+    private final List<String> lemmas = List.of("библиотека", "читатель", "выставка");
+    private List<String> pages;
+
+    @Setup
+    public void setUp() {
+        pages = Corpus.pages();
+    }
+
+    @Benchmark
+    public void extractTitle(Blackhole blackhole) {
+        for (String page : pages) {
+            blackhole.consume(snippetGenerator.extractTitle(page));
+        }
+    }
+
+    @Benchmark
+    public void generateSnippet(Blackhole blackhole) {
+        for (String page : pages) {
+            blackhole.consume(snippetGenerator.generateSnippet(page, lemmas));
+        }
+    }
+}
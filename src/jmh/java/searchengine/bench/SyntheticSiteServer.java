@@ -0,0 +1,145 @@
+package searchengine.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.Jsoup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves a synthetic site graph from a local HTTP server. Page N links to {@code fanOut}
+ * pseudo-random other pages; text is drawn from the corpus vocabulary.
+ */
+public class SyntheticSiteServer implements AutoCloseable {
+    private final int pageCount;
+    private final int fanOut;
+    private final int pageSize;
+    private final int latencyMs;
+    private final double errorRate;
+    private final String[] words;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public SyntheticSiteServer(int pageCount, int fanOut, int pageSize, int latencyMs, double errorRate) throws IOException {
+        this.pageCount = pageCount;
+        this.fanOut = fanOut;
+        this.pageSize = pageSize;
+        this.latencyMs = latencyMs;
+        this.errorRate = errorRate;
+        this.words = vocabulary();
+        this.executor = Executors.newFixedThreadPool(32);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public String rootUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int page = pageNumber(exchange.getRequestURI().getPath());
+        if (page < 0 || page >= pageCount) {
+            respond(exchange, 404, "<html><body>Not found</body></html>");
+        } else if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            respond(exchange, 500, "<html><body>Internal error</body></html>");
+        } else {
+            respond(exchange, 200, render(page));
+        }
+    }
+
+    private String render(int page) {
+        Random random = new Random(page);
+        StringBuilder html = new StringBuilder(pageSize + 1024)
+                .append("<!DOCTYPE html><html lang=\"ru\"><head><meta charset=\"utf-8\"><title>")
+                .append(sentence(random, 5)).append("</title></head><body><nav>");
+        for (int i = 0; i < fanOut; i++) {
+            int target = random.nextInt(pageCount);
+            html.append("<a href=\"/page/").append(target).append("\">").append(words[random.nextInt(words.length)]).append("</a> ");
+        }
+        html.append("</nav><h1>").append(sentence(random, 6)).append("</h1>");
+        while (html.length() < pageSize) {
+            html.append("<p>").append(sentence(random, 40)).append("</p>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    private String sentence(Random random, int length) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(words[random.nextInt(words.length)]);
+        }
+        return sentence.toString();
+    }
+
+    private static int pageNumber(String path) {
+        if (path.equals("/")) {
+            return 0;
+        }
+        if (path.startsWith("/page/")) {
+            try {
+                return Integer.parseInt(path.substring(6));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String[] vocabulary() {
+        List<String> pages = Corpus.pages();
+        return pages.stream()
+                .map(html -> Jsoup.parse(html).text())
+                .flatMap(text -> List.of(text.split("[^А-Яа-яЁё]+")).stream())
+                .filter(word -> word.length() > 2)
+                .distinct()
+                .toArray(String[]::new);
+    }
+}
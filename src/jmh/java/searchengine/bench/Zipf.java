@@ -0,0 +1,28 @@
+package searchengine.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Samples ranks 0..size-1 with probability proportional to 1 / (rank + 1)^exponent.
+ */
+public final class Zipf {
+    private final double[] cumulative;
+
+    public Zipf(int size, double exponent) {
+        cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            sum += 1.0 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    public int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,21 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "admission-settings")
+public class AdmissionSettings {
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 200;
+    private int maxQueued = 100;
+    private long maxQueueWaitMs = 50;
+    private double tolerance = 1.5;
+    private double smoothing = 0.2;
+}
@@ -0,0 +1,17 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "analysis-settings")
+public class AnalysisSettings {
+    private float titleWeight = 3;
+    private float headingWeight = 2;
+    private float anchorWeight = 0.5f;
+    private float bodyWeight = 1;
+}
@@ -3,8 +3,12 @@ package searchengine.config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
 public class AppConfig {
@@ -13,4 +17,18 @@ public class AppConfig {
     public ExecutorService executorService() {
         return Executors.newFixedThreadPool(10);
     }
-}
\ No newline at end of file
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService searchExecutor(SearchSettings searchSettings) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(searchSettings.getShardThreads(), searchSettings.getShardThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(searchSettings.getShardQueueSize()),
+                r -> {
+                    Thread thread = new Thread(r, "search-shard-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -0,0 +1,16 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "checkpoint-settings")
+public class CheckpointSettings {
+    private boolean enabled = true;
+    private String directory = "data/checkpoints";
+    private int syncIntervalSeconds = 5;
+}
@@ -0,0 +1,18 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One Hikari pool. Without a url the pool connects to spring.datasource.
+ */
+@Setter
+@Getter
+public class ConnectionPool {
+    private String url;
+    private String username;
+    private String password;
+    private int maximumPoolSize = 10;
+    private int minimumIdle = 2;
+    private long connectionTimeoutMs = 30000;
+}
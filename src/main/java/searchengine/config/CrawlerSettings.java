@@ -0,0 +1,25 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crawler-settings")
+public class CrawlerSettings {
+    private int minDelayMs = 500;
+    private int maxDelayMs = 5000;
+    private int connectTimeoutMs = 10000;
+    private int requestTimeoutMs = 30000;
+    private int maxConnectionsPerHost = 4;
+    private int maxBodyBytes = 2 * 1024 * 1024;
+    private boolean respectRobots = true;
+    private String robotsAgent = "searchengine";
+    private int maxCrawlDelayMs = 30000;
+    private boolean useSitemaps = true;
+    private int maxSitemaps = 50;
+    private int maxSitemapUrls = 50000;
+}
@@ -0,0 +1,86 @@
+package searchengine.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import searchengine.repositories.RoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Separate connection pools for the crawler and for searches, so a full reindex cannot take
+ * every connection from the search endpoint. The search pool may point to a read replica.
+ * Hikari reports both pools to the meter registry (hikaricp.connections.*, tagged with the
+ * pool name); db.pool.saturation adds the share of connections in use.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource indexingDataSource(DataSourceProperties properties,
+                                               DataSourceSettings settings,
+                                               MeterRegistry registry) {
+        return pool("indexing", properties, settings.getIndexing(), registry);
+    }
+
+    /**
+     * Read-only, read committed: searches read what is committed now instead of holding an old snapshot
+     * while the crawler writes.
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource searchDataSource(DataSourceProperties properties,
+                                             DataSourceSettings settings,
+                                             MeterRegistry registry) {
+        HikariDataSource dataSource = pool("search", properties, settings.getSearch(), registry);
+        dataSource.setReadOnly(true);
+        dataSource.setTransactionIsolation("TRANSACTION_READ_COMMITTED");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("indexingDataSource") DataSource indexingDataSource,
+                                 @Qualifier("searchDataSource") DataSource searchDataSource) {
+        RoutingDataSource routing = new RoutingDataSource();
+        routing.setTargetDataSources(Map.<Object, Object>of(
+                RoutingDataSource.Route.INDEXING, indexingDataSource,
+                RoutingDataSource.Route.SEARCH, searchDataSource));
+        routing.setDefaultTargetDataSource(indexingDataSource);
+        return routing;
+    }
+
+    private static HikariDataSource pool(String name, DataSourceProperties properties, ConnectionPool settings,
+                                         MeterRegistry registry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        if (settings.getUrl() == null || settings.getUrl().isBlank()) {
+            dataSource.setJdbcUrl(properties.determineUrl());
+            dataSource.setUsername(properties.determineUsername());
+            dataSource.setPassword(properties.determinePassword());
+        } else {
+            dataSource.setJdbcUrl(settings.getUrl());
+            dataSource.setUsername(settings.getUsername());
+            dataSource.setPassword(settings.getPassword());
+        }
+        dataSource.setMaximumPoolSize(settings.getMaximumPoolSize());
+        dataSource.setMinimumIdle(Math.min(settings.getMinimumIdle(), settings.getMaximumPoolSize()));
+        dataSource.setConnectionTimeout(settings.getConnectionTimeoutMs());
+        Gauge.builder("db.pool.saturation", dataSource, DataSourceConfig::saturation)
+                .tag("pool", name)
+                .register(registry);
+        return dataSource;
+    }
+
+    private static double saturation(HikariDataSource dataSource) {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : (double) pool.getActiveConnections() / dataSource.getMaximumPoolSize();
+    }
+}
@@ -0,0 +1,15 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "datasource-settings")
+public class DataSourceSettings {
+    private ConnectionPool indexing = new ConnectionPool();
+    private ConnectionPool search = new ConnectionPool();
+}
@@ -0,0 +1,16 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "duplicate-settings")
+public class DuplicateSettings {
+    private boolean enabled = true;
+    private int maxDistance = 3;
+    private int minLemmas = 20;
+}
@@ -0,0 +1,10 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+public class RemoteNode {
+    private String url;
+}
@@ -0,0 +1,23 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search-settings")
+public class SearchSettings {
+    private int shardThreads = Runtime.getRuntime().availableProcessors();
+    private int shardQueueSize = 256;
+    private long shardTimeoutMs = 2000;
+    private long timeBudgetMs = 1000;
+    private int resultCacheEntries = 10000;
+    private long resultCacheTtlSeconds = 60;
+    private List<RemoteNode> remoteNodes = new ArrayList<>();
+}
@@ -0,0 +1,18 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "segment-index")
+public class SegmentIndexSettings {
+    private boolean enabled = false;
+    private String directory = "data/index";
+    private int flushDocs = 500;
+    private int mergeFactor = 8;
+    private long mergeIntervalSeconds = 30;
+}
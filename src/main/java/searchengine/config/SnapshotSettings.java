@@ -0,0 +1,15 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "snapshot")
+public class SnapshotSettings {
+    private boolean enabled = true;
+    private String path = "data/snapshot.bin";
+}
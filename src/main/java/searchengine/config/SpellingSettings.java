@@ -0,0 +1,20 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "spelling-settings")
+public class SpellingSettings {
+    private boolean enabled = true;
+    private int maxDistance = 2;
+    private int prefixLength = 7;
+    private int minWordLength = 4;
+    private int maxCandidates = 3;
+    private int maxVariants = 8;
+    private float editPenalty = 0.5f;
+}
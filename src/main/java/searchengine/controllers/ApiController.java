@@ -1,15 +1,27 @@
 package searchengine.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import searchengine.dto.search.SearchResponse;
+import searchengine.dto.search.SuggestResponse;
 import searchengine.dto.statistics.StatisticsResponse;
+import searchengine.search.ShardRequest;
+import searchengine.search.ShardResult;
+import searchengine.services.IndexArchive;
 import searchengine.services.IndexingService;
+import searchengine.services.SearchAdmission;
 import searchengine.services.SearchService;
 import searchengine.services.StatisticsService;
+import searchengine.services.SuggestService;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -21,12 +33,23 @@ public class ApiController {
     private final IndexingService indexingService;
     @Autowired
     private final SearchService searchService;
+    private final SuggestService suggestService;
+    private final SearchAdmission searchAdmission;
+    private final IndexArchive indexArchive;
 
     @Autowired
-    public ApiController(StatisticsService statisticsService, IndexingService indexingService, SearchService searchService) {
+    public ApiController(StatisticsService statisticsService,
+                         IndexingService indexingService,
+                         SearchService searchService,
+                         SuggestService suggestService,
+                         SearchAdmission searchAdmission,
+                         IndexArchive indexArchive) {
         this.statisticsService = statisticsService;
         this.indexingService = indexingService;
         this.searchService = searchService;
+        this.suggestService = suggestService;
+        this.searchAdmission = searchAdmission;
+        this.indexArchive = indexArchive;
     }
 
     @GetMapping("/statistics")
@@ -83,11 +106,35 @@ public class ApiController {
         }
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportIndex() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"search-index.bin.gz\"")
+                .body(indexArchive::export);
+    }
+
+    @PostMapping("/import")
+    public ResponseEntity<?> importIndex(InputStream archive) {
+        try {
+            return ResponseEntity.ok(Map.of(
+                    "result", true,
+                    "rows", indexArchive.importFrom(archive)
+            ));
+        } catch (IOException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "result", false,
+                    "error", e.getMessage()
+            ));
+        }
+    }
+
     @GetMapping("/search")
     public ResponseEntity<?> search(@RequestParam String query,
                                     @RequestParam(required = false) String site,
                                     @RequestParam(defaultValue = "0") int offset,
-                                    @RequestParam(defaultValue = "20") int limit) {
+                                    @RequestParam(defaultValue = "20") int limit,
+                                    @RequestParam(required = false) Long timeout) {
         if (query == null || query.trim().isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of(
                     "result", false,
@@ -95,14 +142,34 @@ public class ApiController {
             ));
         }
 
-        SearchResponse response = searchService.search(query, site, offset, limit);
+        SearchResponse response = searchAdmission.search(query, site, offset, limit, timeout);
         if (response == null) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "result", false,
-                    "error", "Search failed"
-            ));
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of(
+                            "result", false,
+                            "error", "Search is overloaded, try again later"
+                    ));
         }
 
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<SuggestResponse> suggest(@RequestParam String query,
+                                                   @RequestParam(required = false) String site,
+                                                   @RequestParam(defaultValue = "10") int limit) {
+        SuggestResponse response = new SuggestResponse();
+        response.setResult(true);
+        response.setData(suggestService.suggest(query, site, Math.max(0, Math.min(limit, 50))));
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/shard/search")
+    public ResponseEntity<ShardResult> shardSearch(@RequestParam(required = false) String site,
+                                                   @RequestParam List<String> lemmas,
+                                                   @RequestParam int topK,
+                                                   @RequestParam(defaultValue = "1000") long budgetMs) {
+        return ResponseEntity.ok(searchService.searchShard(new ShardRequest(site, lemmas, topK, budgetMs)));
+    }
 }
\ No newline at end of file
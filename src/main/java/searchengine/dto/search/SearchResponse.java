@@ -8,5 +8,6 @@ import java.util.List;
 public class SearchResponse {
     private boolean result;
     private int count;
+    private boolean partial;
     private List<SearchResult> data;
 }
@@ -8,4 +8,5 @@ public class TotalStatistics {
     private int pages;
     private int lemmas;
     private boolean indexing;
+    private double pagesPerSecond;
 }
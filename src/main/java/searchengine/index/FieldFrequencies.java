@@ -0,0 +1,42 @@
+package searchengine.index;
+
+/**
+ * Occurrences of a lemma on a page per field, packed into one int: a byte each for the
+ * title, h1–h3 headings, link text and the rest of the body. Counts saturate at 255.
+ */
+public final class FieldFrequencies {
+    public static final int TITLE = 0;
+    public static final int HEADING = 1;
+    public static final int ANCHOR = 2;
+    public static final int BODY = 3;
+    public static final int FIELDS = 4;
+
+    private static final int MAX_COUNT = 0xFF;
+
+    private FieldFrequencies() {
+    }
+
+    public static int of(int field, int count) {
+        return Math.min(count, MAX_COUNT) << (field * Byte.SIZE);
+    }
+
+    public static int get(int packed, int field) {
+        return (packed >>> (field * Byte.SIZE)) & MAX_COUNT;
+    }
+
+    public static int merge(int a, int b) {
+        int packed = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            packed |= of(field, get(a, field) + get(b, field));
+        }
+        return packed;
+    }
+
+    public static int total(int packed) {
+        int total = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            total += get(packed, field);
+        }
+        return total;
+    }
+}
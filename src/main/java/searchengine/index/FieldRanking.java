@@ -0,0 +1,38 @@
+package searchengine.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.AnalysisSettings;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rank of a lemma on a page: its occurrences in each field times the field weight.
+ */
+@Component
+public class FieldRanking {
+    private final float[] weights = new float[FieldFrequencies.FIELDS];
+
+    @Autowired
+    public FieldRanking(AnalysisSettings settings) {
+        weights[FieldFrequencies.TITLE] = settings.getTitleWeight();
+        weights[FieldFrequencies.HEADING] = settings.getHeadingWeight();
+        weights[FieldFrequencies.ANCHOR] = settings.getAnchorWeight();
+        weights[FieldFrequencies.BODY] = settings.getBodyWeight();
+    }
+
+    public float rank(int fieldFrequencies) {
+        float rank = 0;
+        for (int field = 0; field < FieldFrequencies.FIELDS; field++) {
+            rank += weights[field] * FieldFrequencies.get(fieldFrequencies, field);
+        }
+        return rank;
+    }
+
+    public HashMap<String, Float> rank(Map<String, Integer> fieldFrequencies) {
+        HashMap<String, Float> ranks = new HashMap<>(fieldFrequencies.size() * 4 / 3 + 1);
+        fieldFrequencies.forEach((lemma, packed) -> ranks.put(lemma, rank(packed)));
+        return ranks;
+    }
+}
@@ -0,0 +1,177 @@
+package searchengine.index;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import searchengine.config.SnapshotSettings;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves the term dictionary and document norms to a binary file on shutdown and after
+ * each indexing run, and restores them on startup. Falls back to a rebuild from the
+ * database when the file is missing, of another version or fails the CRC check.
+ * Postings need no snapshot: segment buffers are flushed to segment files on shutdown.
+ */
+@Slf4j
+@Service
+@DependsOn("schemaMigration")
+public class IndexSnapshot {
+    private static final int MAGIC = 0x534E4150;
+    private static final int VERSION = 1;
+
+    private final SnapshotSettings settings;
+    private final TermDictionary termDictionary;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+
+    @Autowired
+    public IndexSnapshot(SnapshotSettings settings,
+                         TermDictionary termDictionary,
+                         LemmaRepository lemmaRepository,
+                         IndexRepository indexRepository) {
+        this.settings = settings;
+        this.termDictionary = termDictionary;
+        this.lemmaRepository = lemmaRepository;
+        this.indexRepository = indexRepository;
+    }
+
+    @PostConstruct
+    public void restore() {
+        long start = System.currentTimeMillis();
+        Path path = Paths.get(settings.getPath());
+        if (settings.isEnabled() && Files.exists(path)) {
+            try {
+                load(path);
+                log.info("Restored search snapshot from {} in {} ms", path, System.currentTimeMillis() - start);
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Search snapshot {} is unusable, rebuilding from database: {}", path, e.getMessage());
+                termDictionary.clear();
+            }
+        }
+        rebuild();
+        log.info("Rebuilt search structures from database in {} ms", System.currentTimeMillis() - start);
+    }
+
+    @PreDestroy
+    public void save() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        Path path = Paths.get(settings.getPath());
+        try {
+            write(path);
+        } catch (IOException e) {
+            log.error("Failed to write search snapshot {}", path, e);
+        }
+    }
+
+    public void invalidate() {
+        try {
+            Files.deleteIfExists(Paths.get(settings.getPath()));
+        } catch (IOException e) {
+            log.warn("Failed to delete search snapshot {}", settings.getPath(), e);
+        }
+    }
+
+    public void rebuild() {
+        termDictionary.clear();
+        for (Object[] row : lemmaRepository.findPageFrequencies()) {
+            termDictionary.putDocFreq((Integer) row[0], (String) row[1], ((Number) row[2]).intValue());
+        }
+        for (Object[] row : indexRepository.sumRanksByPage()) {
+            termDictionary.putNorm((Integer) row[0], ((Number) row[1]).floatValue());
+        }
+    }
+
+    private synchronized void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            DataOutputStream checked = new DataOutputStream(new CheckedOutputStream(out, crc));
+            checked.writeInt(MAGIC);
+            checked.writeInt(VERSION);
+
+            List<Integer> siteIds = List.copyOf(termDictionary.siteIds());
+            checked.writeInt(siteIds.size());
+            for (Integer siteId : siteIds) {
+                Map<String, Integer> lemmas = Map.copyOf(termDictionary.lemmas(siteId));
+                checked.writeInt(siteId);
+                checked.writeInt(lemmas.size());
+                for (Map.Entry<String, Integer> entry : lemmas.entrySet()) {
+                    byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    checked.writeShort(bytes.length);
+                    checked.write(bytes);
+                    checked.writeInt(entry.getValue());
+                }
+            }
+
+            Map<Integer, Float> norms = Map.copyOf(termDictionary.documentNorms());
+            checked.writeInt(norms.size());
+            for (Map.Entry<Integer, Float> entry : norms.entrySet()) {
+                checked.writeInt(entry.getKey());
+                checked.writeFloat(entry.getValue());
+            }
+            checked.flush();
+            out.writeLong(crc.getValue());
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int payloadSize = buffer.capacity() - Long.BYTES;
+        if (payloadSize < 8) {
+            throw new IOException("Snapshot is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, payloadSize));
+        if (crc.getValue() != buffer.getLong(payloadSize)) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Unsupported snapshot version");
+        }
+
+        int siteCount = buffer.getInt();
+        for (int s = 0; s < siteCount; s++) {
+            int siteId = buffer.getInt();
+            int lemmaCount = buffer.getInt();
+            for (int i = 0; i < lemmaCount; i++) {
+                byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(bytes);
+                termDictionary.putDocFreq(siteId, new String(bytes, StandardCharsets.UTF_8), buffer.getInt());
+            }
+        }
+        int normCount = buffer.getInt();
+        for (int i = 0; i < normCount; i++) {
+            termDictionary.putNorm(buffer.getInt(), buffer.getFloat());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package searchengine.index;
+
+import java.util.Arrays;
+
+public final class PostingList {
+    public static final PostingList EMPTY = new PostingList(new int[0], new float[0], 0);
+
+    private final int[] pageIds;
+    private final float[] ranks;
+    private final int size;
+
+    public PostingList(int[] pageIds, float[] ranks, int size) {
+        this.pageIds = pageIds;
+        this.ranks = ranks;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int pageId(int i) {
+        return pageIds[i];
+    }
+
+    public float rank(int i) {
+        return ranks[i];
+    }
+
+    public float maxRank() {
+        float max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, ranks[i]);
+        }
+        return max;
+    }
+
+    public int indexOf(int pageId) {
+        return Arrays.binarySearch(pageIds, 0, size, pageId);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public static PostingList merge(PostingList a, PostingList b) {
+        if (a.isEmpty()) {
+            return b;
+        }
+        if (b.isEmpty()) {
+            return a;
+        }
+        int[] ids = new int[a.size + b.size];
+        float[] ranks = new float[a.size + b.size];
+        int i = 0, j = 0, n = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.pageIds[i] <= b.pageIds[j])) {
+                if (j < b.size && a.pageIds[i] == b.pageIds[j]) {
+                    j++;
+                }
+                ids[n] = a.pageIds[i];
+                ranks[n++] = a.ranks[i++];
+            } else {
+                ids[n] = b.pageIds[j];
+                ranks[n++] = b.ranks[j++];
+            }
+        }
+        return new PostingList(ids, ranks, n);
+    }
+
+    /**
+     * The list without the page ids in {@code deletedPages}, which must be sorted. Returns this
+     * list without copying when none of the deleted ids fall within its range of page ids.
+     */
+    public PostingList without(int[] deletedPages) {
+        if (size == 0 || deletedPages.length == 0) {
+            return this;
+        }
+        int from = lowerBound(deletedPages, pageIds[0]);
+        int to = lowerBound(deletedPages, pageIds[size - 1]);
+        if (to < deletedPages.length && deletedPages[to] == pageIds[size - 1]) {
+            to++;
+        }
+        if (from == to) {
+            return this;
+        }
+        int[] ids = new int[size];
+        float[] newRanks = new float[size];
+        int n = 0;
+        int d = from;
+        for (int i = 0; i < size; i++) {
+            while (d < to && deletedPages[d] < pageIds[i]) {
+                d++;
+            }
+            if (d < to && deletedPages[d] == pageIds[i]) {
+                continue;
+            }
+            ids[n] = pageIds[i];
+            newRanks[n++] = ranks[i];
+        }
+        return n == size ? this : new PostingList(ids, newRanks, n);
+    }
+
+    private static int lowerBound(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,31 @@
+package searchengine.index;
+
+import java.util.Arrays;
+
+final class PostingsBuilder {
+    private long[] entries = new long[4];
+    private int size;
+
+    void add(int pageId, float rank) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+        entries[size++] = ((long) pageId << 32) | (Float.floatToRawIntBits(rank) & 0xFFFFFFFFL);
+    }
+
+    int size() {
+        return size;
+    }
+
+    PostingList build() {
+        long[] sorted = Arrays.copyOf(entries, size);
+        Arrays.sort(sorted);
+        int[] pageIds = new int[size];
+        float[] ranks = new float[size];
+        for (int i = 0; i < size; i++) {
+            pageIds[i] = (int) (sorted[i] >>> 32);
+            ranks[i] = Float.intBitsToFloat((int) sorted[i]);
+        }
+        return new PostingList(pageIds, ranks, size);
+    }
+}
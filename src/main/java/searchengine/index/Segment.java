@@ -0,0 +1,144 @@
+package searchengine.index;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a segment file mapped into memory.
+ * Only absolute reads are used on the buffer, so one instance is shared by all search threads.
+ */
+public final class Segment {
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int termCount;
+    private final int docCount;
+    private final int tableOffset;
+    private final int minPageId;
+    private final int maxPageId;
+
+    private Segment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        int version = buffer.getInt(4);
+        if (buffer.getInt(0) != SegmentWriter.MAGIC || version < 1 || version > SegmentWriter.VERSION) {
+            throw new IOException("Not a segment file or unsupported version: " + path);
+        }
+        this.termCount = buffer.getInt(8);
+        this.docCount = buffer.getInt(12);
+        this.tableOffset = buffer.getInt(20);
+        // version 1 segments do not record their page ids, any page may be in them
+        this.minPageId = version >= 2 ? buffer.getInt(24) : Integer.MIN_VALUE;
+        this.maxPageId = version >= 2 ? buffer.getInt(28) : Integer.MAX_VALUE;
+    }
+
+    public static Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getTermCount() {
+        return termCount;
+    }
+
+    public int getDocCount() {
+        return docCount;
+    }
+
+    /**
+     * Whether the page id is within the range of the ids in this segment.
+     */
+    public boolean mayContain(int pageId) {
+        return pageId >= minPageId && pageId <= maxPageId;
+    }
+
+    public long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    public String termAt(int ordinal) {
+        int entry = entryOffset(ordinal);
+        byte[] bytes = new byte[buffer.getShort(entry) & 0xFFFF];
+        buffer.get(entry + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int docFreqAt(int ordinal) {
+        int entry = entryOffset(ordinal);
+        return buffer.getInt(entry + 2 + (buffer.getShort(entry) & 0xFFFF) + 4);
+    }
+
+    public float maxRankAt(int ordinal) {
+        int entry = entryOffset(ordinal);
+        return buffer.getFloat(entry + 2 + (buffer.getShort(entry) & 0xFFFF) + 8);
+    }
+
+    public int find(String term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = termAt(mid).compareTo(term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public PostingList postings(String term) {
+        int ordinal = find(term);
+        return ordinal < 0 ? PostingList.EMPTY : postingsAt(ordinal);
+    }
+
+    public PostingList postingsAt(int ordinal) {
+        int entry = entryOffset(ordinal);
+        int position = buffer.getInt(entry + 2 + (buffer.getShort(entry) & 0xFFFF));
+
+        int[] cursor = {position};
+        int size = readVarInt(cursor);
+        int[] pageIds = new int[size];
+        float[] ranks = new float[size];
+        int previous = 0;
+        for (int i = 0; i < size; i++) {
+            previous += readVarInt(cursor);
+            pageIds[i] = previous;
+            ranks[i] = buffer.getFloat(cursor[0]);
+            cursor[0] += 4;
+        }
+        return new PostingList(pageIds, ranks, size);
+    }
+
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private int entryOffset(int ordinal) {
+        return buffer.getInt(tableOffset + ordinal * 4);
+    }
+
+    private int readVarInt(int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(cursor[0]++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,151 @@
+package searchengine.index;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import searchengine.config.SegmentIndexSettings;
+import searchengine.metrics.HotPathMetrics;
+import searchengine.model.Page;
+import searchengine.model.Site;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Optional on-disk index. Pages stay in MySQL, postings are written to per-site
+ * segment files during crawling and read back through memory-mapped buffers.
+ */
+@Slf4j
+@Service
+public class SegmentIndex {
+    private static final String SITE_DIRECTORY_PREFIX = "site-";
+
+    private final SegmentIndexSettings settings;
+    private final HotPathMetrics metrics;
+    private final Map<Integer, SiteSegments> sites = new ConcurrentHashMap<>();
+    private ScheduledExecutorService mergeScheduler;
+
+    @Autowired
+    public SegmentIndex(SegmentIndexSettings settings, HotPathMetrics metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        Path root = Paths.get(settings.getDirectory());
+        Files.createDirectories(root);
+        try (Stream<Path> directories = Files.list(root)) {
+            for (Path directory : directories.toList()) {
+                String name = directory.getFileName().toString();
+                if (Files.isDirectory(directory) && name.startsWith(SITE_DIRECTORY_PREFIX)) {
+                    int siteId = Integer.parseInt(name.substring(SITE_DIRECTORY_PREFIX.length()));
+                    sites.put(siteId, new SiteSegments(siteId, directory));
+                }
+            }
+        }
+        log.info("Opened segment index at {} with {} sites", root.toAbsolutePath(), sites.size());
+
+        mergeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "segment-merge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mergeScheduler.scheduleWithFixedDelay(this::mergeSegments,
+                settings.getMergeIntervalSeconds(), settings.getMergeIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (mergeScheduler != null) {
+            mergeScheduler.shutdownNow();
+        }
+        for (SiteSegments siteSegments : sites.values()) {
+            try {
+                siteSegments.flush();
+            } catch (IOException e) {
+                log.error("Failed to flush segments of site {}", siteSegments.getSiteId(), e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    public void addPage(Page page, Map<String, Float> ranks) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            siteSegments(page.getSite()).add(page.getId(), ranks, settings.getFlushDocs());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write segment for site " + page.getSite().getUrl(), e);
+        }
+    }
+
+    public void deletePage(Page page) {
+        if (isEnabled()) {
+            siteSegments(page.getSite()).delete(page.getId());
+        }
+    }
+
+    public void flush(Site site) {
+        if (!isEnabled()) {
+            return;
+        }
+        Timer.Sample sample = metrics.start();
+        try {
+            siteSegments(site).flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush segments of site " + site.getUrl(), e);
+        } finally {
+            metrics.stop(sample, "indexer.segment.flush");
+        }
+    }
+
+    public PostingList postings(Site site, String lemma) {
+        SiteSegments siteSegments = sites.get(site.getId());
+        return siteSegments == null ? PostingList.EMPTY : siteSegments.postings(lemma);
+    }
+
+    public int docFreq(Site site, String lemma) {
+        SiteSegments siteSegments = sites.get(site.getId());
+        return siteSegments == null ? 0 : siteSegments.docFreq(lemma);
+    }
+
+    private SiteSegments siteSegments(Site site) {
+        return sites.computeIfAbsent(site.getId(), siteId -> {
+            try {
+                return new SiteSegments(siteId, Paths.get(settings.getDirectory(), SITE_DIRECTORY_PREFIX + siteId));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void mergeSegments() {
+        for (SiteSegments siteSegments : sites.values()) {
+            try {
+                siteSegments.maybeMerge(settings.getMergeFactor());
+            } catch (IOException e) {
+                log.error("Segment merge failed for site {}", siteSegments.getSiteId(), e);
+            }
+        }
+    }
+}
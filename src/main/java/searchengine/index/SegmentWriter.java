@@ -0,0 +1,106 @@
+package searchengine.index;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Writes an immutable segment file.
+ * Layout: header, postings (delta + varint page ids, float ranks), term entries, term offset table.
+ * Version 2 adds the smallest and largest page id to the header, so deletes can be matched to segments.
+ */
+public final class SegmentWriter {
+    static final int MAGIC = 0x5345474D;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 32;
+
+    private SegmentWriter() {
+    }
+
+    public static void write(Path path, SortedMap<String, PostingList> terms, int docCount) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteArrayOutputStream termData = new ByteArrayOutputStream();
+        DataOutputStream termOut = new DataOutputStream(termData);
+        int[] termOffsets = new int[terms.size()];
+        int termDataOffset;
+        int tableOffset;
+        int minPageId = Integer.MAX_VALUE;
+        int maxPageId = Integer.MIN_VALUE;
+        for (PostingList postings : terms.values()) {
+            if (!postings.isEmpty()) {
+                minPageId = Math.min(minPageId, postings.pageId(0));
+                maxPageId = Math.max(maxPageId, postings.pageId(postings.size() - 1));
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(terms.size());
+            out.writeInt(docCount);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(minPageId);
+            out.writeInt(maxPageId);
+
+            int t = 0;
+            for (Map.Entry<String, PostingList> entry : terms.entrySet()) {
+                PostingList postings = entry.getValue();
+                termOffsets[t++] = termOut.size();
+                byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                termOut.writeShort(bytes.length);
+                termOut.write(bytes);
+                termOut.writeInt(out.size());
+                termOut.writeInt(postings.size());
+                termOut.writeFloat(postings.maxRank());
+
+                writeVarInt(out, postings.size());
+                int previous = 0;
+                for (int i = 0; i < postings.size(); i++) {
+                    writeVarInt(out, postings.pageId(i) - previous);
+                    out.writeFloat(postings.rank(i));
+                    previous = postings.pageId(i);
+                }
+            }
+
+            termDataOffset = out.size();
+            termData.writeTo(out);
+            tableOffset = out.size();
+            for (int offset : termOffsets) {
+                out.writeInt(termDataOffset + offset);
+            }
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Segment exceeds 2 GB: " + path);
+            }
+        }
+        patchOffsets(tmp, termDataOffset, tableOffset);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void patchOffsets(Path tmp, int termDataOffset, int tableOffset) throws IOException {
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            buffer.putInt(termDataOffset).putInt(tableOffset).flip();
+            channel.write(buffer, 16);
+        }
+    }
+
+    static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,280 @@
+package searchengine.index;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+@Slf4j
+public class SiteSegments {
+    private static final String SEGMENT_SUFFIX = ".seg";
+    // ids of deleted pages still in some segment, rewritten on flush so deletes survive a restart
+    private static final String DELETES_FILE = "pages.del";
+
+    private final int siteId;
+    private final Path directory;
+    private final CopyOnWriteArrayList<Segment> segments = new CopyOnWriteArrayList<>();
+    // sorted, replaced as a whole under the instance lock, read without it
+    private volatile int[] deletedPages = new int[0];
+    private final AtomicBoolean deletesChanged = new AtomicBoolean();
+    private final AtomicLong generation = new AtomicLong();
+    private final Object mergeLock = new Object();
+
+    private Map<String, PostingsBuilder> buffer = new HashMap<>();
+    private int bufferedDocs;
+    private int bufferMinPageId = Integer.MAX_VALUE;
+    private int bufferMaxPageId = Integer.MIN_VALUE;
+
+    public SiteSegments(int siteId, Path directory) throws IOException {
+        this.siteId = siteId;
+        this.directory = directory;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(Segment.open(file));
+                    generation.set(Math.max(generation.get(), parseGeneration(name)));
+                } else if (name.equals(DELETES_FILE)) {
+                    readDeletes(file);
+                }
+            }
+        }
+    }
+
+    public int getSiteId() {
+        return siteId;
+    }
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    public synchronized void add(int pageId, Map<String, Float> ranks, int flushDocs) throws IOException {
+        for (Map.Entry<String, Float> entry : ranks.entrySet()) {
+            buffer.computeIfAbsent(entry.getKey(), k -> new PostingsBuilder()).add(pageId, entry.getValue());
+        }
+        bufferedDocs++;
+        bufferMinPageId = Math.min(bufferMinPageId, pageId);
+        bufferMaxPageId = Math.max(bufferMaxPageId, pageId);
+        if (bufferedDocs >= flushDocs) {
+            flush();
+        }
+    }
+
+    public synchronized void delete(int pageId) {
+        int[] current = deletedPages;
+        int position = Arrays.binarySearch(current, pageId);
+        if (position >= 0 || !isStored(pageId, null)) {
+            return;
+        }
+        int insertion = -position - 1;
+        int[] updated = new int[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, insertion);
+        updated[insertion] = pageId;
+        System.arraycopy(current, insertion, updated, insertion + 1, current.length - insertion);
+        deletedPages = updated;
+        deletesChanged.set(true);
+    }
+
+    public synchronized void flush() throws IOException {
+        if (deletesChanged.getAndSet(false)) {
+            try {
+                writeDeletes();
+            } catch (IOException e) {
+                deletesChanged.set(true);
+                throw e;
+            }
+        }
+        if (bufferedDocs == 0) {
+            return;
+        }
+        TreeMap<String, PostingList> terms = new TreeMap<>();
+        buffer.forEach((term, postings) -> terms.put(term, postings.build()));
+        Path path = nextSegmentPath();
+        SegmentWriter.write(path, terms, bufferedDocs);
+        segments.add(Segment.open(path));
+        buffer = new HashMap<>();
+        bufferedDocs = 0;
+        bufferMinPageId = Integer.MAX_VALUE;
+        bufferMaxPageId = Integer.MIN_VALUE;
+    }
+
+    public PostingList postings(String term) {
+        int[] deleted = deletedPages;
+        PostingList result;
+        synchronized (this) {
+            PostingsBuilder buffered = buffer.get(term);
+            result = buffered == null ? PostingList.EMPTY : buffered.build().without(deleted);
+        }
+        // filtered per list, so only lists whose page id range holds a deleted id are copied
+        for (Segment segment : segments) {
+            result = PostingList.merge(result, segment.postings(term).without(deleted));
+        }
+        return result;
+    }
+
+    public int docFreq(String term) {
+        int docFreq;
+        synchronized (this) {
+            PostingsBuilder buffered = buffer.get(term);
+            docFreq = buffered == null ? 0 : buffered.size();
+        }
+        for (Segment segment : segments) {
+            int ordinal = segment.find(term);
+            if (ordinal >= 0) {
+                docFreq += segment.docFreqAt(ordinal);
+            }
+        }
+        return docFreq;
+    }
+
+    public void maybeMerge(int mergeFactor) throws IOException {
+        synchronized (mergeLock) {
+            if (segments.size() < mergeFactor) {
+                return;
+            }
+            List<Segment> toMerge = segments.stream()
+                    .sorted(Comparator.comparingLong(Segment::sizeInBytes))
+                    .limit(mergeFactor)
+                    .toList();
+            int[] applied = deletedPages;
+            Path path = nextSegmentPath();
+            int docCount = toMerge.stream().mapToInt(Segment::getDocCount).sum();
+            SegmentWriter.write(path, mergeTerms(toMerge, applied), docCount);
+
+            Segment merged = Segment.open(path);
+            segments.add(merged);
+            segments.removeAll(toMerge);
+            pruneDeletes(applied, merged);
+            for (Segment segment : toMerge) {
+                try {
+                    segment.delete();
+                } catch (IOException e) {
+                    log.warn("Could not delete merged segment {}", segment.getPath(), e);
+                }
+            }
+            log.info("Merged {} segments of site {} into {}", toMerge.size(), siteId, path.getFileName());
+        }
+    }
+
+    /**
+     * Forgets the deletes the merge applied whose pages can be in no other segment or the buffer.
+     */
+    private synchronized void pruneDeletes(int[] applied, Segment merged) {
+        int[] current = deletedPages;
+        int[] kept = new int[current.length];
+        int n = 0;
+        for (int pageId : current) {
+            if (Arrays.binarySearch(applied, pageId) < 0 || isStored(pageId, merged)) {
+                kept[n++] = pageId;
+            }
+        }
+        if (n < current.length) {
+            deletedPages = Arrays.copyOf(kept, n);
+            deletesChanged.set(true);
+        }
+    }
+
+    // whether the page may be in the buffer or in a segment other than the excluded one
+    private boolean isStored(int pageId, Segment excluded) {
+        if (bufferedDocs > 0 && pageId >= bufferMinPageId && pageId <= bufferMaxPageId) {
+            return true;
+        }
+        for (Segment segment : segments) {
+            if (segment != excluded && segment.mayContain(pageId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private TreeMap<String, PostingList> mergeTerms(List<Segment> toMerge, int[] deleted) {
+        record Cursor(Segment segment, int ordinal, String term) {
+        }
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Comparator.comparing(Cursor::term));
+        for (Segment segment : toMerge) {
+            if (segment.getTermCount() > 0) {
+                queue.add(new Cursor(segment, 0, segment.termAt(0)));
+            }
+        }
+        TreeMap<String, PostingList> terms = new TreeMap<>();
+        while (!queue.isEmpty()) {
+            String term = queue.peek().term();
+            List<PostingList> lists = new ArrayList<>();
+            while (!queue.isEmpty() && queue.peek().term().equals(term)) {
+                Cursor cursor = queue.poll();
+                lists.add(cursor.segment().postingsAt(cursor.ordinal()));
+                int next = cursor.ordinal() + 1;
+                if (next < cursor.segment().getTermCount()) {
+                    queue.add(new Cursor(cursor.segment(), next, cursor.segment().termAt(next)));
+                }
+            }
+            PostingList merged = PostingList.EMPTY;
+            for (PostingList list : lists) {
+                merged = PostingList.merge(merged, list);
+            }
+            merged = merged.without(deleted);
+            if (!merged.isEmpty()) {
+                terms.put(term, merged);
+            }
+        }
+        return terms;
+    }
+
+    private void writeDeletes() throws IOException {
+        Path path = directory.resolve(DELETES_FILE);
+        Path tmp = path.resolveSibling(DELETES_FILE + ".tmp");
+        int[] pageIds = deletedPages;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(pageIds.length);
+            for (int pageId : pageIds) {
+                out.writeInt(pageId);
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readDeletes(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int[] pageIds = new int[in.readInt()];
+            for (int i = 0; i < pageIds.length; i++) {
+                pageIds[i] = in.readInt();
+            }
+            Arrays.sort(pageIds);
+            deletedPages = pageIds;
+        }
+    }
+
+    private Path nextSegmentPath() {
+        return directory.resolve(String.format("seg-%010d%s", generation.incrementAndGet(), SEGMENT_SUFFIX));
+    }
+
+    private static long parseGeneration(String name) {
+        try {
+            return Long.parseLong(name.substring(4, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
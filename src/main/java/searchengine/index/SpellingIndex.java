@@ -0,0 +1,182 @@
+package searchengine.index;
+
+import searchengine.utils.PathHash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable symmetric-delete index for spelling correction. Every string obtained by deleting up
+ * to maxDistance characters from the prefix of a term is hashed and stored with the term id, so
+ * the terms close to a word are found by generating the deletes of the word and looking them up;
+ * the candidates are then checked with the real edit distance. Entries are packed into one sorted
+ * long array (39-bit hash, 24-bit term id); hash collisions only add candidates that fail the check.
+ */
+public final class SpellingIndex {
+    public static final SpellingIndex EMPTY = build(Map.of(), 0, 1);
+
+    private static final int ID_BITS = 24;
+    private static final int MAX_TERMS = 1 << ID_BITS;
+
+    public record Candidate(String term, int distance, int weight) {
+    }
+
+    private static final Comparator<Candidate> BEST_FIRST = Comparator
+            .comparingInt(Candidate::distance)
+            .thenComparing(Comparator.comparingInt(Candidate::weight).reversed())
+            .thenComparing(Candidate::term);
+
+    private final String[] terms;
+    private final int[] weights;
+    private final long[] entries;
+    private final int maxDistance;
+    private final int prefixLength;
+
+    private SpellingIndex(String[] terms, int[] weights, long[] entries, int maxDistance, int prefixLength) {
+        this.terms = terms;
+        this.weights = weights;
+        this.entries = entries;
+        this.maxDistance = maxDistance;
+        this.prefixLength = prefixLength;
+    }
+
+    /**
+     * Indexes the heaviest terms when there are more than the 24-bit ids can address.
+     */
+    public static SpellingIndex build(Map<String, Integer> weightedTerms, int maxDistance, int prefixLength) {
+        String[] terms = weightedTerms.keySet().toArray(new String[0]);
+        if (terms.length > MAX_TERMS) {
+            Arrays.sort(terms, Comparator.comparing(weightedTerms::get, Comparator.reverseOrder()));
+            terms = Arrays.copyOf(terms, MAX_TERMS);
+        }
+        int[] weights = new int[terms.length];
+        long[] entries = new long[Math.max(16, terms.length * 8)];
+        int size = 0;
+        Set<String> deletes = new HashSet<>();
+        for (int id = 0; id < terms.length; id++) {
+            weights[id] = weightedTerms.get(terms[id]);
+            deletes.clear();
+            addDeletes(prefix(terms[id], prefixLength), maxDistance, deletes);
+            if (size + deletes.size() > entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(entries.length * 2, size + deletes.size()));
+            }
+            for (String delete : deletes) {
+                entries[size++] = key(delete) | id;
+            }
+        }
+        entries = Arrays.copyOf(entries, size);
+        Arrays.sort(entries);
+        return new SpellingIndex(terms, weights, entries, maxDistance, prefixLength);
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * Up to limit indexed terms within the edit distance of the word, closest first and among
+     * equally close ones the heaviest first. The word itself is returned too when indexed.
+     */
+    public List<Candidate> lookup(String word, int distance, int limit) {
+        int allowed = Math.min(distance, maxDistance);
+        if (terms.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        Set<String> deletes = new HashSet<>();
+        addDeletes(prefix(word, prefixLength), allowed, deletes);
+        Set<Integer> seen = new HashSet<>();
+        List<Candidate> candidates = new ArrayList<>();
+        for (String delete : deletes) {
+            long key = key(delete);
+            int position = lowerBound(key);
+            for (; position < entries.length && (entries[position] & ~(MAX_TERMS - 1L)) == key; position++) {
+                int id = (int) (entries[position] & (MAX_TERMS - 1));
+                if (!seen.add(id) || Math.abs(terms[id].length() - word.length()) > allowed) {
+                    continue;
+                }
+                int d = distance(word, terms[id], allowed);
+                if (d <= allowed) {
+                    candidates.add(new Candidate(terms[id], d, weights[id]));
+                }
+            }
+        }
+        candidates.sort(BEST_FIRST);
+        return candidates.size() > limit ? List.copyOf(candidates.subList(0, limit)) : candidates;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein with adjacent transpositions), or
+     * limit + 1 as soon as it is known to exceed limit.
+     */
+    static int distance(String a, String b, int limit) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > limit) {
+            return limit + 1;
+        }
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], limit + 1);
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static String prefix(String word, int prefixLength) {
+        return word.length() > prefixLength ? word.substring(0, prefixLength) : word;
+    }
+
+    private static void addDeletes(String word, int distance, Set<String> deletes) {
+        if (!deletes.add(word) || distance == 0 || word.length() <= 1) {
+            return;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            addDeletes(word.substring(0, i) + word.substring(i + 1), distance - 1, deletes);
+        }
+    }
+
+    // the top 39 bits of the hash, so entries stay non-negative and sort in key order
+    private static long key(String delete) {
+        return (PathHash.of(delete) >>> (Long.SIZE - 39)) << ID_BITS;
+    }
+}
@@ -0,0 +1,132 @@
+package searchengine.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Immutable prefix completion index over weighted terms. Terms are kept sorted, so the terms
+ * with a prefix form one range found by binary search; the heaviest terms of the range are
+ * taken in order with range-maximum queries, answered by a scan of the partial blocks at the
+ * range ends and a sparse table over per-block maxima.
+ */
+public final class SuggestionIndex {
+    public static final SuggestionIndex EMPTY = build(Map.of());
+
+    private static final int BLOCK_SHIFT = 5;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    public record Suggestion(String term, int weight) {
+    }
+
+    private final String[] terms;
+    private final int[] weights;
+    // blockMax[k][b]: position of the heaviest term in blocks b .. b + 2^k - 1
+    private final int[][] blockMax;
+
+    private SuggestionIndex(String[] terms, int[] weights) {
+        this.terms = terms;
+        this.weights = weights;
+        int blocks = (terms.length + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        int levels = blocks == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(blocks);
+        blockMax = new int[levels][];
+        if (levels == 0) {
+            return;
+        }
+        blockMax[0] = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            blockMax[0][b] = scanMax(b << BLOCK_SHIFT, Math.min(terms.length, (b + 1) << BLOCK_SHIFT) - 1);
+        }
+        for (int k = 1; k < levels; k++) {
+            int span = 1 << (k - 1);
+            blockMax[k] = new int[blocks - (1 << k) + 1];
+            for (int b = 0; b < blockMax[k].length; b++) {
+                blockMax[k][b] = heavier(blockMax[k - 1][b], blockMax[k - 1][b + span]);
+            }
+        }
+    }
+
+    public static SuggestionIndex build(Map<String, Integer> weightedTerms) {
+        String[] terms = weightedTerms.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[] weights = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            weights[i] = weightedTerms.get(terms[i]);
+        }
+        return new SuggestionIndex(terms, weights);
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * Up to {@code limit} terms starting with the prefix, heaviest first.
+     */
+    public List<Suggestion> complete(String prefix, int limit) {
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE) - 1;
+        List<Suggestion> suggestions = new ArrayList<>(Math.min(limit, Math.max(0, to - from + 1)));
+        if (from > to || limit <= 0) {
+            return suggestions;
+        }
+        // ranges ordered by the weight of their heaviest term: {heaviest, from, to}
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> Integer.compare(weights[b[0]], weights[a[0]]));
+        ranges.add(new int[]{rangeMax(from, to), from, to});
+        while (!ranges.isEmpty() && suggestions.size() < limit) {
+            int[] range = ranges.poll();
+            int top = range[0];
+            suggestions.add(new Suggestion(terms[top], weights[top]));
+            if (range[1] < top) {
+                ranges.add(new int[]{rangeMax(range[1], top - 1), range[1], top - 1});
+            }
+            if (top < range[2]) {
+                ranges.add(new int[]{rangeMax(top + 1, range[2]), top + 1, range[2]});
+            }
+        }
+        return suggestions;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = terms.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terms[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int rangeMax(int from, int to) {
+        int firstBlock = from >> BLOCK_SHIFT;
+        int lastBlock = to >> BLOCK_SHIFT;
+        if (lastBlock - firstBlock < 2) {
+            return scanMax(from, to);
+        }
+        int best = heavier(scanMax(from, ((firstBlock + 1) << BLOCK_SHIFT) - 1), scanMax(lastBlock << BLOCK_SHIFT, to));
+        int left = firstBlock + 1;
+        int right = lastBlock - 1;
+        int k = 31 - Integer.numberOfLeadingZeros(right - left + 1);
+        return heavier(best, heavier(blockMax[k][left], blockMax[k][right - (1 << k) + 1]));
+    }
+
+    private int scanMax(int from, int to) {
+        int best = from;
+        for (int i = from + 1; i <= to; i++) {
+            if (weights[i] > weights[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private int heavier(int a, int b) {
+        return weights[b] > weights[a] || (weights[b] == weights[a] && b < a) ? b : a;
+    }
+}
@@ -0,0 +1,82 @@
+package searchengine.index;
+
+import org.springframework.stereotype.Component;
+import searchengine.model.Page;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory lemma dictionary (document frequency per site) and document norms
+ * (sum of ranks per page), kept up to date by the indexer.
+ */
+@Component
+public class TermDictionary {
+    private final Map<Integer, Map<String, Integer>> docFreqBySite = new ConcurrentHashMap<>();
+    private final Map<Integer, Float> documentNorms = new ConcurrentHashMap<>();
+
+    public void addPage(Page page, Map<String, Float> ranks) {
+        Map<String, Integer> docFreq = siteDictionary(page.getSite().getId());
+        float norm = 0;
+        for (Map.Entry<String, Float> entry : ranks.entrySet()) {
+            docFreq.merge(entry.getKey(), 1, Integer::sum);
+            norm += entry.getValue();
+        }
+        documentNorms.put(page.getId(), norm);
+    }
+
+    public void removePage(Page page, Collection<String> lemmas) {
+        Map<String, Integer> docFreq = siteDictionary(page.getSite().getId());
+        for (String lemma : lemmas) {
+            docFreq.computeIfPresent(lemma, (key, value) -> value > 1 ? value - 1 : null);
+        }
+        documentNorms.remove(page.getId());
+    }
+
+    public int docFreq(int siteId, String lemma) {
+        return docFreqBySite.getOrDefault(siteId, Map.of()).getOrDefault(lemma, 0);
+    }
+
+    public int docFreq(String lemma) {
+        int docFreq = 0;
+        for (Map<String, Integer> dictionary : docFreqBySite.values()) {
+            docFreq += dictionary.getOrDefault(lemma, 0);
+        }
+        return docFreq;
+    }
+
+    public float norm(int pageId) {
+        return documentNorms.getOrDefault(pageId, 0f);
+    }
+
+    public Set<Integer> siteIds() {
+        return docFreqBySite.keySet();
+    }
+
+    public Map<String, Integer> lemmas(int siteId) {
+        return docFreqBySite.getOrDefault(siteId, Map.of());
+    }
+
+    public Map<Integer, Float> documentNorms() {
+        return documentNorms;
+    }
+
+    public void clear() {
+        docFreqBySite.clear();
+        documentNorms.clear();
+    }
+
+    void putDocFreq(int siteId, String lemma, int docFreq) {
+        siteDictionary(siteId).put(lemma, docFreq);
+    }
+
+    void putNorm(int pageId, float norm) {
+        documentNorms.put(pageId, norm);
+    }
+
+    private Map<String, Integer> siteDictionary(int siteId) {
+        return docFreqBySite.computeIfAbsent(siteId, id -> new ConcurrentHashMap<>());
+    }
+}
@@ -0,0 +1,52 @@
+package searchengine.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.MetricsSettings;
+
+/**
+ * Thin wrapper over the meter registry for the crawler and search hot paths.
+ * When metrics are disabled {@link #start()} returns null and every call is a no-op,
+ * so instrumented code pays for one branch and no clock reads.
+ */
+@Component
+public class HotPathMetrics {
+    private final MeterRegistry registry;
+    private final boolean enabled;
+
+    @Autowired
+    public HotPathMetrics(MeterRegistry registry, MetricsSettings settings) {
+        this.registry = registry;
+        this.enabled = settings.isEnabled();
+    }
+
+    public Timer.Sample start() {
+        return enabled ? Timer.start(registry) : null;
+    }
+
+    public void stop(Timer.Sample sample, String name, String... tags) {
+        if (sample != null) {
+            sample.stop(registry.timer(name, tags));
+        }
+    }
+
+    public void increment(String name, String... tags) {
+        if (enabled) {
+            registry.counter(name, tags).increment();
+        }
+    }
+
+    public void record(String name, double amount, String... tags) {
+        if (enabled) {
+            registry.summary(name, tags).record(amount);
+        }
+    }
+
+    public void cacheAccess(String cache, boolean hit) {
+        if (enabled) {
+            registry.counter("cache.requests", "cache", cache, "result", hit ? "hit" : "miss").increment();
+        }
+    }
+}
@@ -5,7 +5,9 @@ import lombok.Data;
 
 @Entity
 @Data
-@Table(name = "search_index")
+@Table(name = "search_index",
+        uniqueConstraints = @UniqueConstraint(name = "uk_search_index_page_lemma", columnNames = {"page_id", "lemma_id"}),
+        indexes = @jakarta.persistence.Index(name = "idx_search_index_lemma_page_rank", columnList = "lemma_id, page_id, `rank`"))
 public class Index {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,4 +23,8 @@ public class Index {
 
     @Column(name = "`rank`",nullable = false)
     private float rank;
+
+    // packed per-field occurrences, see FieldFrequencies; null for rows written before the column existed
+    @Column(name = "field_frequencies")
+    private Integer fieldFrequencies;
 }
\ No newline at end of file
@@ -5,7 +5,8 @@ import lombok.Data;
 
 @Entity
 @Data
-@Table(name = "lemma")
+@Table(name = "lemma",
+        uniqueConstraints = @UniqueConstraint(name = "uk_lemma_site_lemma", columnNames = {"site_id", "lemma"}))
 public class Lemma {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -15,9 +16,11 @@ public class Lemma {
     @JoinColumn(name = "site_id", nullable = false)
     private Site site;
 
+    // binary collation on MySQL, set by SchemaMigration, so spellings such as и and й stay separate rows
     @Column(nullable = false, length = 255)
     private String lemma;
 
+    // number of pages of the site containing the lemma
     @Column(nullable = false)
     private int frequency;
 }
\ No newline at end of file
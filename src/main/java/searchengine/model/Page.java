@@ -3,12 +3,13 @@ package searchengine.model;
 import jakarta.persistence.Index;
 import jakarta.persistence.*;
 import lombok.Data;
+import searchengine.utils.PathHash;
 
 @Entity
 @Data
-@Table(name = "page")
-
-
+@Table(name = "page",
+        uniqueConstraints = @UniqueConstraint(name = "uk_page_site_path_hash", columnNames = {"site_id", "path_hash"}),
+        indexes = @Index(name = "idx_page_canonical_page_id", columnList = "canonical_page_id"))
 public class Page {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,9 +22,30 @@ public class Page {
     @Column(columnDefinition = "TEXT", nullable = false, length = 255)
     private String path;
 
+    // nullable only for rows written before the column existed, see SchemaMigration
+    @Column(name = "path_hash")
+    private Long pathHash;
+
     @Column(nullable = false)
     private int code;
 
     @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
     private String content;
+
+    // taken from the parsed document at indexing time; null for pages saved before the column existed
+    @Column(columnDefinition = "TEXT")
+    private String title;
+
+    // SimHash of the page's lemmas, null when the page is too short to compare
+    private Long fingerprint;
+
+    // set on a near-duplicate, which is stored without content or index rows
+    @Column(name = "canonical_page_id")
+    private Integer canonicalPageId;
+
+    @PrePersist
+    @PreUpdate
+    void computePathHash() {
+        pathHash = PathHash.of(path);
+    }
 }
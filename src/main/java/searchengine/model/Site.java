@@ -30,6 +30,10 @@ public class Site {
     @Column( nullable = false)
     private String name;
 
+    // written only by SiteRepository.updatePageCount, so saving a stale entity cannot reset it
+    @Column(name = "page_count", insertable = false, updatable = false)
+    private Integer pageCount;
+
     @OneToMany(mappedBy = "site")
     private List<Page> pages;
 
@@ -1,14 +1,26 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Index;
 import searchengine.model.Lemma;
 import searchengine.model.Page;
+import searchengine.model.Site;
 
 import java.util.List;
 
 public interface IndexRepository extends JpaRepository<Index, Integer> {
+    @Transactional
     void deleteByPage(Page page);
     List<Index> findByPageAndLemma(Page page, Lemma lemma);
+    List<Index> findByPage(Page page);
+
+    @Query("SELECT i.page.id, SUM(i.rank) FROM Index i GROUP BY i.page.id")
+    List<Object[]> sumRanksByPage();
+
+    @Query("SELECT i.page.id, i.rank FROM Index i WHERE i.lemma.site = :site AND i.lemma.lemma = :lemma ORDER BY i.page.id")
+    List<Object[]> findPostings(@Param("site") Site site, @Param("lemma") String lemma);
 
 }
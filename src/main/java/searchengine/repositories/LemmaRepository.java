@@ -1,16 +1,32 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Lemma;
 import searchengine.model.Site;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 public interface LemmaRepository extends JpaRepository<Lemma, Integer> {
     List<Lemma> findAllByLemma(String lemma);
+    List<Lemma> findBySiteAndLemmaIn(Site site, Collection<String> lemmas);
     void deleteBySite(Site site);
     int countBySite(Site site);
 
+    @Transactional
+    @Modifying
+    @Query("UPDATE Lemma l SET l.frequency = l.frequency - 1 WHERE l.id IN :ids")
+    void decrementFrequency(@Param("ids") Collection<Integer> ids);
 
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Lemma l WHERE l.site = :site AND l.frequency <= 0")
+    void deleteUnused(@Param("site") Site site);
+
+    @Query("SELECT l.site.id, l.lemma, l.frequency FROM Lemma l")
+    List<Object[]> findPageFrequencies();
 }
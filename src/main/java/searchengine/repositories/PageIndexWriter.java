@@ -0,0 +1,76 @@
+package searchengine.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.model.Page;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the lemmas and index rows of a stored page in one transaction, so a crash cannot
+ * leave lemma frequencies counting a page whose index rows were never written.
+ * Lemma frequencies are upserted with multi-row statements instead of a round trip per lemma.
+ */
+@Component
+public class PageIndexWriter {
+    // two parameters per row, far below the prepared statement limit of 65535
+    private static final int ROWS_PER_STATEMENT = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public PageIndexWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Counts the page in the frequency of each of its lemmas, creating missing lemma rows,
+     * and writes one index row per lemma with its rank and field frequencies.
+     */
+    public void saveLemmasAndIndexes(Page page, Map<String, Integer> fieldFrequencies, Map<String, Float> ranks) {
+        if (ranks.isEmpty()) {
+            return;
+        }
+        int siteId = page.getSite().getId();
+        // a fixed order keeps concurrent upserts of the same site from deadlocking
+        List<String> names = new ArrayList<>(ranks.keySet());
+        Collections.sort(names);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (int from = 0; from < names.size(); from += ROWS_PER_STATEMENT) {
+                List<String> chunk = names.subList(from, Math.min(names.size(), from + ROWS_PER_STATEMENT));
+                Object[] upsertArgs = new Object[chunk.size() * 2];
+                for (int i = 0; i < chunk.size(); i++) {
+                    upsertArgs[2 * i] = siteId;
+                    upsertArgs[2 * i + 1] = chunk.get(i);
+                }
+                jdbcTemplate.update("INSERT INTO lemma (site_id, lemma, frequency) VALUES "
+                        + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, 1)"))
+                        + " ON DUPLICATE KEY UPDATE frequency = frequency + 1", upsertArgs);
+
+                Object[] selectArgs = new Object[chunk.size() + 1];
+                selectArgs[0] = siteId;
+                for (int i = 0; i < chunk.size(); i++) {
+                    selectArgs[i + 1] = chunk.get(i);
+                }
+                jdbcTemplate.query("SELECT id, lemma FROM lemma WHERE site_id = ? AND lemma IN ("
+                        + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")", resultSet -> {
+                    // lemma.lemma has a binary collation, so every row returned is one of the page's lemmas
+                    String lemma = resultSet.getString(2);
+                    rows.add(new Object[]{page.getId(), resultSet.getInt(1), ranks.get(lemma), fieldFrequencies.get(lemma)});
+                }, selectArgs);
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO search_index (page_id, lemma_id, `rank`, field_frequencies) VALUES (?, ?, ?, ?)", rows);
+        });
+    }
+}
@@ -1,9 +1,10 @@
 package searchengine.repositories;
 
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Page;
 import searchengine.model.Site;
 
@@ -12,15 +13,21 @@ import java.util.Optional;
 
 public interface PageRepository extends JpaRepository<Page, Integer> {
     void deleteBySiteUrl(String url);
-    boolean existsByPath(String path);
-    Optional<Page> findByPath(String path);
+    Optional<Page> findBySiteAndPathHash(Site site, long pathHash);
     int countBySite(Site site);
 
-    @Query("SELECT p FROM Page p WHERE p.site = :site AND p.content LIKE %:#{#lemmas[0]}%")
-    List<Page> findBySiteAndLemmas(@Param("site") Site site, @Param("lemmas") List<String> lemmas, Pageable pageable);
-    @Query("SELECT p FROM Page p WHERE p.content LIKE %:#{#lemmas[0]}%")
-    List<Page> findByLemmas(@Param("lemmas") List<String> lemmas, Pageable pageable);
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Page p WHERE p.canonicalPageId = :pageId")
+    int deleteDuplicatesOf(@Param("pageId") int pageId);
 
-    @Query("SELECT COUNT(p) FROM Page p WHERE p.content LIKE %:#{#lemmas[0]}%")
-    int countByLemmas(@Param("lemmas") List<String> lemmas);
+    @Query("SELECT p.site.id, COUNT(p) FROM Page p GROUP BY p.site.id")
+    List<Object[]> countPagesPerSite();
+
+    @Query("SELECT p.pathHash FROM Page p WHERE p.site = :site")
+    List<Long> findPathHashesBySite(@Param("site") Site site);
+
+    @Query("SELECT p.id, p.fingerprint FROM Page p WHERE p.site = :site " +
+            "AND p.fingerprint IS NOT NULL AND p.canonicalPageId IS NULL")
+    List<Object[]> findFingerprintsBySite(@Param("site") Site site);
 }
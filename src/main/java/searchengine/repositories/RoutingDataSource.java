@@ -0,0 +1,33 @@
+package searchengine.repositories;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.function.Supplier;
+
+/**
+ * Hands out connections of the indexing pool unless the current thread runs a search, which
+ * reads through its own pool, possibly on a replica. Searches are marked with {@link #search}
+ * around the code that reads, before any transaction is begun.
+ */
+public class RoutingDataSource extends AbstractRoutingDataSource {
+    public enum Route {
+        INDEXING, SEARCH
+    }
+
+    private static final ThreadLocal<Route> ROUTE = ThreadLocal.withInitial(() -> Route.INDEXING);
+
+    public static <T> T search(Supplier<T> reads) {
+        Route previous = ROUTE.get();
+        ROUTE.set(Route.SEARCH);
+        try {
+            return reads.get();
+        } finally {
+            ROUTE.set(previous);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ROUTE.get();
+    }
+}
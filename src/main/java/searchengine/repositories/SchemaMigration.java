@@ -0,0 +1,190 @@
+package searchengine.repositories;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.utils.PagePath;
+import searchengine.utils.PathHash;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Brings databases created by earlier versions up to date.
+ * Hibernate's schema update adds the new column and indexes, but cannot add a unique key
+ * over duplicate rows or rewrite existing pages; that is done here, once, before the
+ * dictionary and counters are loaded. Data steps are recorded in schema_migration,
+ * key steps check the database metadata.
+ */
+@Slf4j
+@Component
+public class SchemaMigration {
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SchemaMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_migration " +
+                "(name VARCHAR(100) NOT NULL PRIMARY KEY, applied_at DATETIME NOT NULL)");
+        if (!isApplied("relative-page-paths")) {
+            rewritePagePaths();
+            markApplied("relative-page-paths");
+        }
+        if (!indexExists("page", "uk_page_site_path_hash")) {
+            jdbcTemplate.execute("ALTER TABLE page ADD CONSTRAINT uk_page_site_path_hash UNIQUE (site_id, path_hash)");
+        }
+        String lemmaCollation = isMySql() ? lemmaCollation() : null;
+        if (lemmaCollation != null && !lemmaCollation.equals("utf8mb4_bin")) {
+            // lemmas are compared like in memory: an accent-insensitive collation folds и into й
+            // and a page's index row for one spelling would land on the other spelling's row
+            log.info("Switching lemma.lemma to a binary collation");
+            jdbcTemplate.execute("ALTER TABLE lemma MODIFY lemma VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL");
+        }
+        if (!indexExists("lemma", "uk_lemma_site_lemma")) {
+            mergeDuplicateLemmas();
+            jdbcTemplate.execute("ALTER TABLE lemma ADD CONSTRAINT uk_lemma_site_lemma UNIQUE (site_id, lemma)");
+        }
+        if (!indexExists("search_index", "uk_search_index_page_lemma")) {
+            jdbcTemplate.execute("ALTER TABLE search_index ADD CONSTRAINT uk_search_index_page_lemma UNIQUE (page_id, lemma_id)");
+        }
+        if (!indexExists("search_index", "idx_search_index_lemma_page_rank")) {
+            jdbcTemplate.execute("CREATE INDEX idx_search_index_lemma_page_rank ON search_index (lemma_id, page_id, `rank`)");
+        }
+        if (!indexExists("page", "idx_page_canonical_page_id")) {
+            jdbcTemplate.execute("CREATE INDEX idx_page_canonical_page_id ON page (canonical_page_id)");
+        }
+    }
+
+    /**
+     * Stores page paths relative to the site root in normalized form, as PagePath produces them,
+     * and fills path_hash for pages saved before the column existed. Pages that end up under the
+     * same path are removed, keeping the oldest, so the unique key can be added.
+     */
+    private void rewritePagePaths() {
+        log.info("Normalizing page paths");
+        Set<String> seen = new HashSet<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> duplicates = new ArrayList<>();
+        jdbcTemplate.query("SELECT p.id, p.site_id, p.path, p.path_hash, s.url FROM page p " +
+                "JOIN site s ON s.id = p.site_id ORDER BY p.id", row -> {
+            String stored = row.getString("path");
+            String path = PagePath.relativize(row.getString("url"), stored);
+            if (path == null) {
+                path = stored;
+            }
+            long hash = PathHash.of(path);
+            if (!seen.add(row.getInt("site_id") + ":" + hash)) {
+                duplicates.add(new Object[]{row.getInt("id")});
+            } else if (!path.equals(stored) || row.getObject("path_hash") == null || row.getLong("path_hash") != hash) {
+                updates.add(new Object[]{path, hash, row.getInt("id")});
+            }
+        });
+        if (!duplicates.isEmpty()) {
+            log.info("Removing {} duplicate pages", duplicates.size());
+            jdbcTemplate.batchUpdate("DELETE FROM search_index WHERE page_id = ?", duplicates, BATCH_SIZE,
+                    (ps, args) -> ps.setInt(1, (Integer) args[0]));
+            jdbcTemplate.batchUpdate("DELETE FROM page WHERE id = ?", duplicates, BATCH_SIZE,
+                    (ps, args) -> ps.setInt(1, (Integer) args[0]));
+        }
+        // clear the hashes first so rows swapping paths do not collide on the unique key midway
+        jdbcTemplate.batchUpdate("UPDATE page SET path_hash = NULL WHERE id = ?", updates, BATCH_SIZE,
+                (ps, args) -> ps.setInt(1, (Integer) args[2]));
+        jdbcTemplate.batchUpdate("UPDATE page SET path = ?, path_hash = ? WHERE id = ?", updates, BATCH_SIZE, (ps, args) -> {
+            ps.setString(1, (String) args[0]);
+            ps.setLong(2, (Long) args[1]);
+            ps.setInt(3, (Integer) args[2]);
+        });
+    }
+
+    private boolean isApplied(String name) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM schema_migration WHERE name = ?", Integer.class, name);
+        return count != null && count > 0;
+    }
+
+    private void markApplied(String name) {
+        if (!isApplied(name)) {
+            jdbcTemplate.update("INSERT INTO schema_migration (name, applied_at) VALUES (?, CURRENT_TIMESTAMP)", name);
+        }
+    }
+
+    /**
+     * Older versions wrote one lemma row per page. Folds them into one row per site and lemma,
+     * repoints the index rows and sets frequency to the number of pages.
+     */
+    private void mergeDuplicateLemmas() {
+        log.info("Merging duplicate lemma rows");
+        // a temporary table exists only in its session, so every statement runs on one connection
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEMPORARY TABLE lemma_merge AS " +
+                        "SELECT site_id, lemma, MIN(id) AS keep_id FROM lemma GROUP BY site_id, lemma");
+                try {
+                    statement.executeUpdate("UPDATE search_index i " +
+                            "JOIN lemma l ON l.id = i.lemma_id " +
+                            "JOIN lemma_merge m ON m.site_id = l.site_id AND m.lemma = l.lemma " +
+                            "SET i.lemma_id = m.keep_id WHERE i.lemma_id <> m.keep_id");
+                    statement.executeUpdate("DELETE l FROM lemma l " +
+                            "JOIN lemma_merge m ON m.site_id = l.site_id AND m.lemma = l.lemma " +
+                            "WHERE l.id <> m.keep_id");
+                    statement.executeUpdate("UPDATE lemma l " +
+                            "JOIN (SELECT lemma_id, COUNT(*) AS pages FROM search_index GROUP BY lemma_id) s ON s.lemma_id = l.id " +
+                            "SET l.frequency = s.pages");
+                } finally {
+                    statement.execute("DROP TEMPORARY TABLE lemma_merge");
+                }
+            }
+            return null;
+        });
+    }
+
+    private boolean isMySql() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql")));
+    }
+
+    private String lemmaCollation() {
+        List<String> collations = jdbcTemplate.queryForList("SELECT COLLATION_NAME FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'lemma' AND COLUMN_NAME = 'lemma'", String.class);
+        return collations.isEmpty() ? null : collations.get(0);
+    }
+
+    private boolean indexExists(String table, String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String candidate : List.of(table, table.toUpperCase())) {
+                if (hasIndex(metaData, connection.getCatalog(), candidate, name)) {
+                    return true;
+                }
+            }
+            return false;
+        }));
+    }
+
+    private static boolean hasIndex(DatabaseMetaData metaData, String catalog, String table, String name) throws SQLException {
+        try (ResultSet indexes = metaData.getIndexInfo(catalog, null, table, false, true)) {
+            while (indexes.next()) {
+                // some databases name the index backing a constraint after it, with a suffix
+                String indexName = indexes.getString("INDEX_NAME");
+                if (indexName != null && indexName.toLowerCase().startsWith(name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -1,6 +1,10 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Site;
 
 import java.util.Optional;
@@ -9,4 +13,14 @@ public interface SiteRepository extends JpaRepository<Site, Integer> {
     void deleteByUrl(String url);
     Optional<Site> findByUrl(String url);
 
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE site SET page_count = :pageCount WHERE id = :id", nativeQuery = true)
+    void updatePageCount(@Param("id") int id, @Param("pageCount") int pageCount);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE site SET page_count = NULL", nativeQuery = true)
+    void clearPageCounts();
+
 }
@@ -0,0 +1,125 @@
+package searchengine.search;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit that follows observed latency, after the gradient algorithm. Latencies are
+ * averaged over short windows; each window compares its average with the fastest recent one and
+ * scales the limit by the ratio times a tolerance, clamped to [0.5, 1], plus a headroom of
+ * sqrt(limit), so the limit keeps probing upwards while latency stays flat and shrinks once
+ * requests start to queue. A window with requests that ran out of time cuts the limit by a tenth.
+ * Requests over the limit wait a short while for a slot and are rejected when the wait is over
+ * or too many are waiting already.
+ */
+public final class AdaptiveLimiter {
+    private static final long SAMPLE_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final int BASELINE_WINDOWS = 600;
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueued;
+    private final double tolerance;
+    private final double smoothing;
+    private double limit;
+    private double baselineNanos;
+    private int windows;
+    private int inFlight;
+    private int queued;
+    private long windowStart = System.nanoTime();
+    private long windowRttNanos;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueued, double tolerance, double smoothing) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueued = maxQueued;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Takes a slot, waiting up to maxWaitMs for one. Every successful call must be paired with {@link #release}.
+     */
+    public synchronized boolean acquire(long maxWaitMs) throws InterruptedException {
+        if (inFlight < (int) limit) {
+            inFlight++;
+            return true;
+        }
+        if (queued >= maxQueued || maxWaitMs <= 0) {
+            return false;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        queued++;
+        try {
+            while (inFlight >= (int) limit) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            queued--;
+        }
+    }
+
+    /**
+     * Frees the slot and adjusts the limit; dropped is set for requests that did not finish in time.
+     */
+    public synchronized void release(long rttNanos, boolean dropped) {
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight--);
+        windowDropped |= dropped;
+        windowRttNanos += Math.max(1, rttNanos);
+        windowSamples++;
+        long now = System.nanoTime();
+        if (windowSamples >= MIN_WINDOW_SAMPLES && now - windowStart >= SAMPLE_WINDOW_NANOS) {
+            if (windowDropped) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+            } else {
+                update((double) windowRttNanos / windowSamples, windowMaxInFlight);
+            }
+            windowStart = now;
+            windowRttNanos = 0;
+            windowSamples = 0;
+            windowMaxInFlight = 0;
+            windowDropped = false;
+        }
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    private void update(double rttNanos, int used) {
+        // the fastest window stands for the latency without queueing; one not matched for
+        // BASELINE_WINDOWS windows is forgotten, so a lasting change in latency is followed
+        if (baselineNanos == 0 || rttNanos < baselineNanos || ++windows >= BASELINE_WINDOWS) {
+            baselineNanos = rttNanos;
+            windows = 0;
+        }
+        // an idle limiter learns nothing about higher limits
+        if (used < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineNanos / rttNanos));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + target * smoothing));
+    }
+
+}
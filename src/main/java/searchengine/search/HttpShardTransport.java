@@ -0,0 +1,68 @@
+package searchengine.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Calls the /api/shard/search endpoint of another node.
+ */
+public class HttpShardTransport implements ShardTransport {
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final Duration timeout;
+
+    public HttpShardTransport(HttpClient httpClient, ObjectMapper objectMapper, String baseUrl, Duration timeout) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String name() {
+        return baseUrl;
+    }
+
+    @Override
+    public CompletableFuture<ShardResult> search(ShardRequest request) {
+        StringBuilder uri = new StringBuilder(baseUrl)
+                .append("/api/shard/search?topK=").append(request.topK())
+                .append("&budgetMs=").append(request.budgetMs())
+                .append("&lemmas=").append(encode(String.join(",", request.lemmas())));
+        if (request.site() != null) {
+            uri.append("&site=").append(encode(request.site()));
+        }
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(uri.toString()))
+                .timeout(Duration.ofMillis(Math.max(1, Math.min(timeout.toMillis(),
+                        request.budgetMs() + ScatterGatherSearcher.DEADLINE_GRACE_MS))))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("Shard " + baseUrl + " answered " + response.statusCode());
+                    }
+                    try {
+                        return objectMapper.readValue(response.body(), ShardResult.class);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
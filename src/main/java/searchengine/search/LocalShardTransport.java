@@ -0,0 +1,46 @@
+package searchengine.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.model.Site;
+import searchengine.repositories.SiteRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-process transport for the shards of this node. Runs in the calling thread,
+ * the per-site fan-out happens inside {@link ScatterGatherSearcher}.
+ */
+@Component
+public class LocalShardTransport implements ShardTransport {
+    private final SiteRepository siteRepository;
+    private final ScatterGatherSearcher scatterGatherSearcher;
+
+    @Autowired
+    public LocalShardTransport(SiteRepository siteRepository, ScatterGatherSearcher scatterGatherSearcher) {
+        this.siteRepository = siteRepository;
+        this.scatterGatherSearcher = scatterGatherSearcher;
+    }
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public CompletableFuture<ShardResult> search(ShardRequest request) {
+        List<Site> sites;
+        if (request.site() != null) {
+            sites = siteRepository.findByUrl(request.site()).map(List::of).orElse(List.of());
+        } else {
+            sites = siteRepository.findAll();
+        }
+        return CompletableFuture.completedFuture(scatterGatherSearcher.search(sites, request.lemmas(), request.topK(),
+                Deadline.after(request.budgetMs())));
+    }
+
+    public boolean hasSite(String url) {
+        return siteRepository.findByUrl(url).isPresent();
+    }
+}
@@ -0,0 +1,81 @@
+package searchengine.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import searchengine.config.SearchSettings;
+import searchengine.model.Site;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans a query out to one shard per site on a bounded executor and merges the
+ * per-shard top-K lists with a k-way heap merge.
+ */
+@Service
+public class ScatterGatherSearcher {
+    static final long DEADLINE_GRACE_MS = 50;
+
+    private final SiteShardSearcher siteShardSearcher;
+    private final ExecutorService searchExecutor;
+    private final long shardTimeoutMs;
+
+    @Autowired
+    public ScatterGatherSearcher(SiteShardSearcher siteShardSearcher,
+                                 @Qualifier("searchExecutor") ExecutorService searchExecutor,
+                                 SearchSettings searchSettings) {
+        this.siteShardSearcher = siteShardSearcher;
+        this.searchExecutor = searchExecutor;
+        this.shardTimeoutMs = searchSettings.getShardTimeoutMs();
+    }
+
+    public ShardResult search(List<Site> sites, List<String> lemmas, int topK, Deadline deadline) {
+        if (sites.isEmpty() || topK <= 0) {
+            return ShardResult.EMPTY;
+        }
+        if (sites.size() == 1) {
+            return siteShardSearcher.search(sites.get(0), lemmas, topK, deadline);
+        }
+        long timeoutMs = Math.min(shardTimeoutMs, deadline.remainingMillis() + DEADLINE_GRACE_MS);
+        List<CompletableFuture<ShardResult>> futures = sites.stream()
+                .map(site -> CompletableFuture.supplyAsync(
+                        () -> siteShardSearcher.search(site, lemmas, topK, deadline), searchExecutor)
+                        .completeOnTimeout(ShardResult.UNAVAILABLE, timeoutMs, TimeUnit.MILLISECONDS))
+                .toList();
+        return merge(futures.stream().map(CompletableFuture::join).toList(), topK);
+    }
+
+    public static ShardResult merge(List<ShardResult> shardResults, int topK) {
+        record Cursor(List<ScoredPage> hits, int position) {
+            ScoredPage current() {
+                return hits.get(position);
+            }
+        }
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Comparator.comparing(Cursor::current, ScoredPage.BY_SCORE_DESC));
+        int totalHits = 0;
+        boolean partial = false;
+        for (ShardResult shardResult : shardResults) {
+            totalHits += shardResult.totalHits();
+            partial |= shardResult.partial();
+            if (!shardResult.hits().isEmpty()) {
+                queue.add(new Cursor(shardResult.hits(), 0));
+            }
+        }
+
+        List<ScoredPage> merged = new ArrayList<>(topK);
+        while (!queue.isEmpty() && merged.size() < topK) {
+            Cursor cursor = queue.poll();
+            merged.add(cursor.current());
+            if (cursor.position() + 1 < cursor.hits().size()) {
+                queue.add(new Cursor(cursor.hits(), cursor.position() + 1));
+            }
+        }
+        return new ShardResult(merged, totalHits, partial);
+    }
+}
@@ -0,0 +1,23 @@
+package searchengine.search;
+
+import searchengine.dto.search.SearchResult;
+
+import java.util.Comparator;
+
+/**
+ * A ranked hit. Local hits carry only the page id and are resolved against the
+ * database after merging; hits from remote shards arrive with the result filled in.
+ */
+public record ScoredPage(int pageId, int siteId, double score, SearchResult result) {
+    public static final Comparator<ScoredPage> BY_SCORE_DESC = Comparator
+            .comparingDouble(ScoredPage::score).reversed()
+            .thenComparingInt(ScoredPage::pageId);
+
+    public ScoredPage(int pageId, int siteId, double score) {
+        this(pageId, siteId, score, null);
+    }
+
+    public ScoredPage withResult(SearchResult result) {
+        return new ScoredPage(pageId, siteId, score, result);
+    }
+}
@@ -0,0 +1,74 @@
+package searchengine.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.dto.search.SearchResponse;
+import searchengine.metrics.HotPathMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Least recently used cache of complete search responses. Entries expire after a fixed time and
+ * are dropped together when indexing changes the results.
+ */
+@Component
+public class SearchResultCache {
+    private final HotPathMetrics metrics;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries;
+
+    public record Key(String query, String site, int offset, int limit) {
+        public static Key of(String query, String site, int offset, int limit) {
+            return new Key(query.trim().toLowerCase(Locale.ROOT), site, offset, limit);
+        }
+    }
+
+    private record Entry(SearchResponse response, long expiresAt) {
+    }
+
+    @Autowired
+    public SearchResultCache(SearchSettings settings, HotPathMetrics metrics) {
+        this.metrics = metrics;
+        this.maxEntries = settings.getResultCacheEntries();
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(settings.getResultCacheTtlSeconds());
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public SearchResponse get(Key key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() < 0) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        metrics.cacheAccess("search", entry != null);
+        return entry == null ? null : entry.response();
+    }
+
+    public void put(Key key, SearchResponse response) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry(response, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package searchengine.search;
+
+import java.util.List;
+
+public record ShardRequest(String site, List<String> lemmas, int topK, long budgetMs) {
+}
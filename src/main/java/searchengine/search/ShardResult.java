@@ -0,0 +1,12 @@
+package searchengine.search;
+
+import java.util.List;
+
+public record ShardResult(List<ScoredPage> hits, int totalHits, boolean partial) {
+    public static final ShardResult EMPTY = new ShardResult(List.of(), 0, false);
+    public static final ShardResult UNAVAILABLE = new ShardResult(List.of(), 0, true);
+
+    public ShardResult(List<ScoredPage> hits, int totalHits) {
+        this(hits, totalHits, false);
+    }
+}
@@ -0,0 +1,91 @@
+package searchengine.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import searchengine.config.RemoteNode;
+import searchengine.config.SearchSettings;
+import searchengine.metrics.HotPathMetrics;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a query to the local shards and to the shards of the configured remote nodes,
+ * then merges the top-K lists. A remote node that fails or does not answer within
+ * the shard timeout is skipped and the merged result is marked as partial.
+ */
+@Slf4j
+@Service
+public class ShardRouter {
+    private final LocalShardTransport localTransport;
+    private final List<ShardTransport> remoteTransports = new ArrayList<>();
+    private final long shardTimeoutMs;
+    private final HotPathMetrics metrics;
+
+    @Autowired
+    public ShardRouter(LocalShardTransport localTransport,
+                       SearchSettings searchSettings,
+                       ObjectMapper objectMapper,
+                       HotPathMetrics metrics) {
+        this.localTransport = localTransport;
+        this.metrics = metrics;
+        this.shardTimeoutMs = searchSettings.getShardTimeoutMs();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(shardTimeoutMs))
+                .build();
+        for (RemoteNode node : searchSettings.getRemoteNodes()) {
+            remoteTransports.add(new HttpShardTransport(httpClient, objectMapper, node.getUrl(),
+                    Duration.ofMillis(shardTimeoutMs)));
+        }
+    }
+
+    public ShardRouter(LocalShardTransport localTransport,
+                       List<ShardTransport> remoteTransports,
+                       long shardTimeoutMs,
+                       HotPathMetrics metrics) {
+        this.localTransport = localTransport;
+        this.metrics = metrics;
+        this.remoteTransports.addAll(remoteTransports);
+        this.shardTimeoutMs = shardTimeoutMs;
+    }
+
+    public ShardResult route(ShardRequest request) {
+        boolean local = request.site() == null || localTransport.hasSite(request.site());
+        long timeoutMs = Math.min(shardTimeoutMs, request.budgetMs() + ScatterGatherSearcher.DEADLINE_GRACE_MS);
+        List<CompletableFuture<ShardResult>> remote = new ArrayList<>();
+        if (request.site() == null || !local) {
+            for (ShardTransport transport : remoteTransports) {
+                remote.add(transport.search(request)
+                        .completeOnTimeout(ShardResult.UNAVAILABLE, timeoutMs, TimeUnit.MILLISECONDS)
+                        .exceptionally(e -> {
+                            log.warn("Shard {} failed: {}", transport.name(), e.getMessage());
+                            metrics.increment("search.shard.failures", "shard", transport.name());
+                            return ShardResult.UNAVAILABLE;
+                        }));
+            }
+        }
+
+        List<ShardResult> results = new ArrayList<>();
+        if (local) {
+            results.add(localTransport.search(request).join());
+        }
+        for (CompletableFuture<ShardResult> future : remote) {
+            results.add(future.join());
+        }
+        Timer.Sample merge = metrics.start();
+        ShardResult merged = ScatterGatherSearcher.merge(results, request.topK());
+        metrics.stop(merge, "search.stage", "stage", "merge");
+        return merged;
+    }
+
+    public ShardResult searchLocal(ShardRequest request) {
+        return localTransport.search(request).join();
+    }
+}
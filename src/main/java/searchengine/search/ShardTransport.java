@@ -0,0 +1,9 @@
+package searchengine.search;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface ShardTransport {
+    String name();
+
+    CompletableFuture<ShardResult> search(ShardRequest request);
+}
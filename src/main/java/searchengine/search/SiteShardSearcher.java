@@ -0,0 +1,162 @@
+package searchengine.search;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.index.PostingList;
+import searchengine.index.SegmentIndex;
+import searchengine.metrics.HotPathMetrics;
+import searchengine.model.Site;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.RoutingDataSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Evaluates a query against the postings of a single site (one shard) and keeps a local top-K.
+ * Postings come from the segment index when it is enabled, otherwise from search_index.
+ * The rarest lemma drives the evaluation in descending rank order, so once its rank plus the
+ * best possible ranks of the other lemmas cannot beat the current K-th hit, the rest is only
+ * checked for membership, so the hit count is exact and the same for every K.
+ * When the deadline passes the best hits found so far are returned as a partial result.
+ */
+@Component
+public class SiteShardSearcher {
+    private static final int DEADLINE_CHECK_MASK = 0xFF;
+
+    private final SegmentIndex segmentIndex;
+    private final IndexRepository indexRepository;
+    private final HotPathMetrics metrics;
+
+    @Autowired
+    public SiteShardSearcher(SegmentIndex segmentIndex, IndexRepository indexRepository, HotPathMetrics metrics) {
+        this.segmentIndex = segmentIndex;
+        this.indexRepository = indexRepository;
+        this.metrics = metrics;
+    }
+
+    public ShardResult search(Site site, List<String> lemmas, int topK, Deadline deadline) {
+        Timer.Sample sample = metrics.start();
+        try {
+            // shards run on the search executor, outside the caller's route
+            return RoutingDataSource.search(() -> evaluate(site, lemmas, topK, deadline));
+        } finally {
+            metrics.stop(sample, "search.stage", "stage", "intersect");
+        }
+    }
+
+    private ShardResult evaluate(Site site, List<String> lemmas, int topK, Deadline deadline) {
+        List<PostingList> postings = new ArrayList<>();
+        for (String lemma : lemmas) {
+            if (deadline.isExpired()) {
+                return ShardResult.UNAVAILABLE;
+            }
+            PostingList list = postings(site, lemma);
+            if (list.isEmpty()) {
+                return ShardResult.EMPTY;
+            }
+            postings.add(list);
+        }
+        postings.sort(Comparator.comparingInt(PostingList::size));
+
+        PostingList driver = postings.get(0);
+        List<PostingList> others = postings.subList(1, postings.size());
+        double othersMaxScore = 0;
+        for (PostingList list : others) {
+            othersMaxScore += list.maxRank();
+        }
+
+        PriorityQueue<ScoredPage> heap = new PriorityQueue<>(topK + 1, ScoredPage.BY_SCORE_DESC.reversed());
+        int[] order = impactOrder(driver);
+        int evaluated = 0;
+        int matched = 0;
+        boolean partial = false;
+        for (; evaluated < order.length; evaluated++) {
+            int position = order[evaluated];
+            if (heap.size() == topK && driver.rank(position) + othersMaxScore <= heap.peek().score()) {
+                break;
+            }
+            if ((evaluated & DEADLINE_CHECK_MASK) == 0 && deadline.isExpired()) {
+                partial = true;
+                break;
+            }
+            int pageId = driver.pageId(position);
+            double score = driver.rank(position);
+            for (int j = 0; j < others.size() && score >= 0; j++) {
+                int other = others.get(j).indexOf(pageId);
+                score = other < 0 ? -1 : score + others.get(j).rank(other);
+            }
+            if (score < 0) {
+                continue;
+            }
+            matched++;
+            ScoredPage hit = new ScoredPage(pageId, site.getId(), score);
+            if (heap.size() < topK) {
+                heap.add(hit);
+            } else if (ScoredPage.BY_SCORE_DESC.compare(hit, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(hit);
+            }
+        }
+
+        // the postings skipped by early termination still count as hits, checked without scoring
+        if (!partial && others.isEmpty()) {
+            matched += order.length - evaluated;
+        } else if (!partial) {
+            for (int i = evaluated; i < order.length; i++) {
+                if ((i & DEADLINE_CHECK_MASK) == 0 && deadline.isExpired()) {
+                    partial = true;
+                    break;
+                }
+                if (matchesAll(others, driver.pageId(order[i]))) {
+                    matched++;
+                }
+            }
+        }
+
+        List<ScoredPage> hits = new ArrayList<>(heap);
+        hits.sort(ScoredPage.BY_SCORE_DESC);
+        return new ShardResult(hits, matched, partial);
+    }
+
+    private static int[] impactOrder(PostingList postings) {
+        long[] keys = new long[postings.size()];
+        for (int i = 0; i < keys.length; i++) {
+            long inverseRank = Integer.MAX_VALUE - Float.floatToIntBits(postings.rank(i));
+            keys[i] = (inverseRank << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    private static boolean matchesAll(List<PostingList> others, int pageId) {
+        for (PostingList list : others) {
+            if (list.indexOf(pageId) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private PostingList postings(Site site, String lemma) {
+        if (segmentIndex.isEnabled()) {
+            return segmentIndex.postings(site, lemma);
+        }
+        List<Object[]> rows = indexRepository.findPostings(site, lemma);
+        int[] pageIds = new int[rows.size()];
+        float[] ranks = new float[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            pageIds[i] = (Integer) rows.get(i)[0];
+            ranks[i] = (Float) rows.get(i)[1];
+        }
+        return new PostingList(pageIds, ranks, rows.size());
+    }
+}
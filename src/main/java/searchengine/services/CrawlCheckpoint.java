@@ -0,0 +1,258 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.CheckpointSettings;
+import searchengine.model.Site;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only log of the crawl frontier of each site, so a crawl cut short by a crash or a stop
+ * resumes from the pages it had queued instead of from the start page. A record is written when
+ * a link is queued and when its page is done; logs are synced to disk periodically and deleted
+ * once the crawl of the site completes. Which pages are stored is known from the database.
+ */
+@Slf4j
+@Component
+public class CrawlCheckpoint {
+    private static final int MAGIC = 0x43524C47;
+    private static final byte QUEUED = 1;
+    private static final byte DONE = 2;
+
+    private final CheckpointSettings settings;
+    private final Map<Integer, SiteLog> siteLogs = new ConcurrentHashMap<>();
+    private ScheduledExecutorService syncScheduler;
+
+    /**
+     * Pages queued but not done, by path hash, and pages done, including those that were not stored.
+     */
+    public record Progress(Map<Long, String> pending, Set<Long> done) {
+        public boolean isEmpty() {
+            return pending.isEmpty() && done.isEmpty();
+        }
+    }
+
+    private static final class SiteLog {
+        private final FileOutputStream file;
+        private final DataOutputStream out;
+
+        SiteLog(Path path) throws IOException {
+            file = new FileOutputStream(path.toFile(), true);
+            out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+        }
+
+        synchronized void queued(long pathHash, String url) throws IOException {
+            out.write(queuedRecord(pathHash, url));
+        }
+
+        synchronized void done(long pathHash) throws IOException {
+            out.writeByte(DONE);
+            out.writeLong(pathHash);
+        }
+
+        synchronized void sync() throws IOException {
+            out.flush();
+            file.getFD().sync();
+        }
+
+        synchronized void close() throws IOException {
+            sync();
+            out.close();
+        }
+    }
+
+    @Autowired
+    public CrawlCheckpoint(CheckpointSettings settings) {
+        this.settings = settings;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        syncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "crawl-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncScheduler.scheduleWithFixedDelay(this::syncAll,
+                settings.getSyncIntervalSeconds(), settings.getSyncIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (syncScheduler != null) {
+            syncScheduler.shutdownNow();
+        }
+        for (Integer siteId : siteLogs.keySet()) {
+            closeLog(siteId);
+        }
+    }
+
+    /**
+     * Starts logging the crawl of a site and returns what the log of an unfinished earlier crawl holds.
+     * The log is compacted to that state first.
+     */
+    public Progress open(Site site) {
+        Progress progress = new Progress(new LinkedHashMap<>(), new HashSet<>());
+        if (!settings.isEnabled()) {
+            return progress;
+        }
+        closeLog(site.getId());
+        Path path = path(site);
+        try {
+            if (Files.exists(path)) {
+                try {
+                    progress = replay(path);
+                } catch (IOException e) {
+                    log.warn("Crawl checkpoint {} is unusable, crawling {} from the start: {}", path, site.getUrl(), e.getMessage());
+                }
+            }
+            Files.createDirectories(path.getParent());
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                for (Long pathHash : progress.done()) {
+                    out.writeByte(DONE);
+                    out.writeLong(pathHash);
+                }
+                for (Map.Entry<Long, String> entry : progress.pending().entrySet()) {
+                    out.write(queuedRecord(entry.getKey(), entry.getValue()));
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            siteLogs.put(site.getId(), new SiteLog(path));
+        } catch (IOException e) {
+            log.error("Failed to open crawl checkpoint {}, the crawl of {} will not be resumable", path, site.getUrl(), e);
+        }
+        return progress;
+    }
+
+    public void queued(Site site, long pathHash, String url) {
+        SiteLog siteLog = siteLogs.get(site.getId());
+        if (siteLog == null) {
+            return;
+        }
+        try {
+            siteLog.queued(pathHash, url);
+        } catch (IOException e) {
+            log.warn("Failed to write crawl checkpoint of {}: {}", site.getUrl(), e.getMessage());
+        }
+    }
+
+    public void done(Site site, long pathHash) {
+        SiteLog siteLog = siteLogs.get(site.getId());
+        if (siteLog == null) {
+            return;
+        }
+        try {
+            siteLog.done(pathHash);
+        } catch (IOException e) {
+            log.warn("Failed to write crawl checkpoint of {}: {}", site.getUrl(), e.getMessage());
+        }
+    }
+
+    /**
+     * Stops logging the crawl of a site. The log of a completed crawl is deleted, any other is kept to resume from.
+     */
+    public void finish(Site site, boolean completed) {
+        closeLog(site.getId());
+        if (completed && settings.isEnabled()) {
+            try {
+                Files.deleteIfExists(path(site));
+            } catch (IOException e) {
+                log.warn("Failed to delete crawl checkpoint of {}", site.getUrl(), e);
+            }
+        }
+    }
+
+    /**
+     * The whole record is encoded before any of it is written: writeUTF rejects urls over 64 KiB
+     * encoded, and a record cut off after its type and hash would garble every record after it.
+     */
+    private static byte[] queuedRecord(long pathHash, String url) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + url.length());
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeByte(QUEUED);
+        record.writeLong(pathHash);
+        record.writeUTF(url);
+        return bytes.toByteArray();
+    }
+
+    private static Progress replay(Path path) throws IOException {
+        Map<Long, String> pending = new LinkedHashMap<>();
+        Set<Long> done = new HashSet<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a crawl checkpoint");
+            }
+            int type;
+            // a crash can leave a torn or zero-filled tail, the records before it are intact
+            while ((type = in.read()) == QUEUED || type == DONE) {
+                long pathHash = in.readLong();
+                if (type == QUEUED) {
+                    String url = in.readUTF();
+                    if (!done.contains(pathHash)) {
+                        pending.put(pathHash, url);
+                    }
+                } else {
+                    pending.remove(pathHash);
+                    done.add(pathHash);
+                }
+            }
+        } catch (EOFException e) {
+            // torn tail
+        }
+        return new Progress(pending, done);
+    }
+
+    private void syncAll() {
+        siteLogs.forEach((siteId, siteLog) -> {
+            try {
+                siteLog.sync();
+            } catch (IOException e) {
+                log.warn("Failed to sync crawl checkpoint of site {}: {}", siteId, e.getMessage());
+            }
+        });
+    }
+
+    private void closeLog(int siteId) {
+        SiteLog siteLog = siteLogs.remove(siteId);
+        if (siteLog == null) {
+            return;
+        }
+        try {
+            siteLog.close();
+        } catch (IOException e) {
+            log.warn("Failed to close crawl checkpoint of site {}: {}", siteId, e.getMessage());
+        }
+    }
+
+    private Path path(Site site) {
+        return Paths.get(settings.getDirectory(), "site-" + site.getId() + ".log");
+    }
+}
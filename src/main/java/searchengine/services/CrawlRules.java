@@ -0,0 +1,138 @@
+package searchengine.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.model.Site;
+import searchengine.utils.PagePath;
+import searchengine.utils.RobotsRules;
+import searchengine.utils.SitemapParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What a site's robots.txt and sitemaps tell the crawler: which paths it may fetch, how long to
+ * wait between requests, and which pages to start from. Loaded once per crawl of a site.
+ */
+@Slf4j
+@Component
+public class CrawlRules {
+    // robots.txt is capped at 500 KiB by the de facto standard, later rules are ignored
+    private static final int MAX_ROBOTS_BYTES = 500 * 1024;
+
+    private final CrawlerSettings settings;
+    private final PageFetcher pageFetcher;
+    private final Map<Integer, RobotsRules> robots = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> nextRequestNanos = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CrawlRules(CrawlerSettings settings, PageFetcher pageFetcher) {
+        this.settings = settings;
+        this.pageFetcher = pageFetcher;
+    }
+
+    /**
+     * Fetches the site's robots.txt. A missing or unreadable one allows everything.
+     */
+    public RobotsRules load(Site site) throws InterruptedException {
+        RobotsRules rules = RobotsRules.ALLOW_ALL;
+        if (settings.isRespectRobots()) {
+            // robots.txt applies to the whole host, also when the site is a path on it
+            String url = PagePath.origin(site.getUrl()) + "/robots.txt";
+            try {
+                String text = pageFetcher.fetchResource(url,
+                        body -> new String(body.readNBytes(MAX_ROBOTS_BYTES), StandardCharsets.UTF_8));
+                if (text != null) {
+                    rules = RobotsRules.parse(text, settings.getRobotsAgent());
+                }
+            } catch (IOException e) {
+                log.warn("Failed to read {}, crawling without it: {}", url, e.getMessage());
+            }
+        }
+        robots.put(site.getId(), rules);
+        nextRequestNanos.put(site.getId(), new AtomicLong(System.nanoTime()));
+        return rules;
+    }
+
+    /**
+     * Whether robots.txt allows fetching the url. Checked against the url as it will be requested,
+     * not its normalized page path, which may lack a trailing slash a rule depends on.
+     */
+    public boolean isAllowed(Site site, String url) {
+        String path = PagePath.requestPath(url);
+        return path != null && robots.getOrDefault(site.getId(), RobotsRules.ALLOW_ALL).isAllowed(path);
+    }
+
+    /**
+     * Waits for the site's next request slot when its robots.txt sets a crawl-delay.
+     * Slots are handed out in turn to all threads crawling the site.
+     */
+    public void awaitTurn(Site site) throws InterruptedException {
+        long delayMs = robots.getOrDefault(site.getId(), RobotsRules.ALLOW_ALL).getCrawlDelayMs();
+        AtomicLong next = nextRequestNanos.get(site.getId());
+        if (delayMs <= 0 || next == null) {
+            return;
+        }
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(delayMs, settings.getMaxCrawlDelayMs()));
+        long now = System.nanoTime();
+        long slot = next.getAndAccumulate(now, (previous, current) -> Math.max(previous, current) + delayNanos);
+        long wait = Math.max(slot, now) - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Pages listed in the sitemaps named by robots.txt, or in /sitemap.xml when it names none,
+     * best first: by priority, then most recently modified. Sitemap indexes are followed up to
+     * {@code crawler-settings.max-sitemaps} files.
+     */
+    public List<SitemapParser.Entry> sitemapEntries(Site site, RobotsRules rules) throws InterruptedException {
+        List<SitemapParser.Entry> entries = new ArrayList<>();
+        if (!settings.isUseSitemaps()) {
+            return entries;
+        }
+        Deque<String> pending = new ArrayDeque<>(rules.getSitemaps());
+        if (pending.isEmpty()) {
+            pending.add(PagePath.siteRoot(site.getUrl()) + "/sitemap.xml");
+        }
+        Set<String> seen = new HashSet<>();
+        int files = 0;
+        while (!pending.isEmpty() && files < settings.getMaxSitemaps() && entries.size() < settings.getMaxSitemapUrls()) {
+            String url = pending.poll();
+            if (!seen.add(url)) {
+                continue;
+            }
+            files++;
+            try {
+                pageFetcher.fetchResource(url, body -> {
+                    SitemapParser.parse(body, entry -> {
+                        if (entries.size() < settings.getMaxSitemapUrls()) {
+                            entries.add(entry);
+                        }
+                    }, pending::add);
+                    return null;
+                });
+            } catch (IOException e) {
+                log.warn("Failed to read sitemap {}: {}", url, e.getMessage());
+            }
+        }
+        entries.sort(Comparator.comparingDouble(SitemapParser.Entry::priority).reversed()
+                .thenComparing(SitemapParser.Entry::lastModified, Comparator.nullsLast(Comparator.reverseOrder())));
+        log.info("Read {} pages from {} sitemaps of {}", entries.size(), files, site.getUrl());
+        return entries;
+    }
+}
@@ -0,0 +1,446 @@
+package searchengine.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import searchengine.index.IndexSnapshot;
+import searchengine.index.SegmentIndex;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.model.Status;
+import searchengine.repositories.SiteRepository;
+import searchengine.search.SearchResultCache;
+import searchengine.utils.ChunkReader;
+import searchengine.utils.ChunkWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the sites, pages, lemmas and index rows to a gzip-compressed archive of
+ * {@link ChunkWriter} sections and loads such an archive into an empty database, so a new node
+ * starts from a copy instead of a crawl. Both directions stream: the export reads each table
+ * with a streaming result set inside one repeatable-read transaction, the import inserts in
+ * batches with unique and foreign key checks off and commits every batch. Ids are kept.
+ */
+@Slf4j
+@Service
+public class IndexArchive {
+    private static final int MAGIC = 0x53454958;
+    private static final int VERSION = 1;
+    private static final int END = 0;
+    private static final int SITES = 1;
+    private static final int PAGES = 2;
+    private static final int LEMMAS = 3;
+    private static final int INDEXES = 4;
+    private static final List<String> TABLES = List.of("site", "page", "lemma", "search_index");
+    private static final int BATCH_SIZE = 5000;
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IndexingService indexingService;
+    private final SiteRepository siteRepository;
+    private final IndexSnapshot indexSnapshot;
+    private final SegmentIndex segmentIndex;
+    private final IndexingCounters indexingCounters;
+    private final SuggestService suggestService;
+    private final SpellingCorrector spellingCorrector;
+    private final SearchResultCache searchResultCache;
+
+    private interface RowWriter {
+        void write(ResultSet row) throws SQLException, IOException;
+    }
+
+    private interface RowReader {
+        void read(PreparedStatement insert) throws SQLException, IOException;
+    }
+
+    @Autowired
+    public IndexArchive(JdbcTemplate jdbcTemplate,
+                        IndexingService indexingService,
+                        SiteRepository siteRepository,
+                        IndexSnapshot indexSnapshot,
+                        SegmentIndex segmentIndex,
+                        IndexingCounters indexingCounters,
+                        SuggestService suggestService,
+                        SpellingCorrector spellingCorrector,
+                        SearchResultCache searchResultCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.indexingService = indexingService;
+        this.siteRepository = siteRepository;
+        this.indexSnapshot = indexSnapshot;
+        this.segmentIndex = segmentIndex;
+        this.indexingCounters = indexingCounters;
+        this.suggestService = suggestService;
+        this.spellingCorrector = spellingCorrector;
+        this.searchResultCache = searchResultCache;
+    }
+
+    public void export(OutputStream target) throws IOException {
+        long start = System.currentTimeMillis();
+        GZIPOutputStream gzip = new GZIPOutputStream(target, 1 << 16);
+        ChunkWriter writer = new ChunkWriter(gzip);
+        writer.writeHeader(MAGIC, VERSION);
+        Map<String, Long> rows = withConnection(connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+            // one transaction, so a crawl running meanwhile cannot leave index rows without their pages
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setAutoCommit(false);
+            try {
+                Map<String, Long> counts = exportTables(connection, writer);
+                connection.commit();
+                return counts;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                connection.setTransactionIsolation(isolation);
+            }
+        });
+        writer.finish(END);
+        gzip.finish();
+        gzip.flush();
+        log.info("Exported {} in {} ms", rows, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Loads an archive into a database without sites. Returns the number of rows per table.
+     * A failed import removes what it loaded.
+     */
+    public Map<String, Long> importFrom(InputStream source) throws IOException {
+        if (!indexingService.getIndexing().compareAndSet(false, true)) {
+            throw new IllegalStateException("Indexing is running");
+        }
+        try {
+            if (siteRepository.count() > 0) {
+                throw new IllegalStateException("The database already has sites, import needs an empty one");
+            }
+            long start = System.currentTimeMillis();
+            ChunkReader reader = new ChunkReader(new GZIPInputStream(source, 1 << 16));
+            reader.readHeader(MAGIC, VERSION);
+            Map<String, Long> rows;
+            try {
+                rows = withConnection(connection -> load(connection, reader));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Import failed, removing the rows loaded so far", e);
+                for (int i = TABLES.size() - 1; i >= 0; i--) {
+                    jdbcTemplate.execute("DELETE FROM " + TABLES.get(i));
+                }
+                throw e;
+            }
+            refresh();
+            log.info("Imported {} in {} ms", rows, System.currentTimeMillis() - start);
+            return rows;
+        } finally {
+            indexingService.getIndexing().set(false);
+        }
+    }
+
+    private Map<String, Long> exportTables(Connection connection, ChunkWriter writer) throws SQLException, IOException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("sites", exportSection(connection, writer, SITES,
+                "SELECT id, status, status_time, last_error, url, name, page_count FROM site ORDER BY id", row -> {
+                    writer.writeLong(row.getInt("id"));
+                    writer.writeString(row.getString("status"));
+                    writer.writeLong(row.getTimestamp("status_time").getTime());
+                    writer.writeString(row.getString("last_error"));
+                    writer.writeString(row.getString("url"));
+                    writer.writeString(row.getString("name"));
+                    writer.writeNullableLong(row.getObject("page_count", Long.class));
+                }));
+        long[] previous = new long[2];
+        counts.put("pages", exportSection(connection, writer, PAGES,
+                "SELECT id, site_id, path, path_hash, code, content, title, fingerprint, canonical_page_id " +
+                        "FROM page ORDER BY id", row -> {
+                    long id = row.getInt("id");
+                    writer.writeLong(id - previous[0]);
+                    previous[0] = id;
+                    writer.writeLong(row.getInt("site_id"));
+                    writer.writeString(row.getString("path"));
+                    writer.writeNullableLong(row.getObject("path_hash", Long.class));
+                    writer.writeLong(row.getInt("code"));
+                    writer.writeString(row.getString("content"));
+                    writer.writeString(row.getString("title"));
+                    writer.writeNullableLong(row.getObject("fingerprint", Long.class));
+                    writer.writeNullableLong(row.getObject("canonical_page_id", Long.class));
+                }));
+        previous[0] = 0;
+        counts.put("lemmas", exportSection(connection, writer, LEMMAS,
+                "SELECT id, site_id, lemma, frequency FROM lemma ORDER BY id", row -> {
+                    long id = row.getInt("id");
+                    writer.writeLong(id - previous[0]);
+                    previous[0] = id;
+                    writer.writeLong(row.getInt("site_id"));
+                    writer.writeString(row.getString("lemma"));
+                    writer.writeLong(row.getInt("frequency"));
+                }));
+        // in page order the page id is mostly repeated and the lemma id grows within a page,
+        // so both go as small deltas; the row id is not kept, nothing refers to it
+        previous[0] = 0;
+        previous[1] = 0;
+        counts.put("indexes", exportSection(connection, writer, INDEXES,
+                "SELECT page_id, lemma_id, `rank`, field_frequencies FROM search_index ORDER BY page_id, lemma_id", row -> {
+                    long pageId = row.getInt("page_id");
+                    long lemmaId = row.getInt("lemma_id");
+                    writer.writeLong(pageId - previous[0]);
+                    writer.writeLong(pageId == previous[0] ? lemmaId - previous[1] : lemmaId);
+                    previous[0] = pageId;
+                    previous[1] = lemmaId;
+                    writer.writeFloat(row.getFloat("rank"));
+                    writer.writeNullableLong(row.getObject("field_frequencies", Long.class));
+                }));
+        return counts;
+    }
+
+    private long exportSection(Connection connection, ChunkWriter writer, int section, String sql, RowWriter rowWriter)
+            throws SQLException, IOException {
+        writer.beginSection(section);
+        long rows = 0;
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // MySQL Connector/J streams rows one by one only for this fetch size, otherwise it reads the whole result
+            statement.setFetchSize(isMySql(connection) ? Integer.MIN_VALUE : FETCH_SIZE);
+            try (ResultSet row = statement.executeQuery(sql)) {
+                while (row.next()) {
+                    rowWriter.write(row);
+                    writer.endRow();
+                    rows++;
+                }
+            }
+        }
+        writer.endSection();
+        return rows;
+    }
+
+    private Map<String, Long> load(Connection connection, ChunkReader reader) throws SQLException, IOException {
+        boolean mySql = isMySql(connection);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement session = connection.createStatement()) {
+            if (mySql) {
+                // InnoDB ignores DISABLE KEYS and keeps building its indexes, the checks are what it skips
+                session.execute("SET unique_checks = 0");
+                session.execute("SET foreign_key_checks = 0");
+                for (String table : TABLES) {
+                    session.execute("ALTER TABLE " + table + " DISABLE KEYS");
+                }
+            }
+            try {
+                return loadSections(connection, reader);
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                if (mySql) {
+                    for (String table : TABLES) {
+                        session.execute("ALTER TABLE " + table + " ENABLE KEYS");
+                    }
+                    session.execute("SET unique_checks = 1");
+                    session.execute("SET foreign_key_checks = 1");
+                }
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private Map<String, Long> loadSections(Connection connection, ChunkReader reader) throws SQLException, IOException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        Map<Integer, Site> sites = new HashMap<>();
+        // the segment index is fed from the index rows, it needs the lemma text
+        Map<Integer, String> lemmas = new HashMap<>();
+        int section;
+        while ((section = reader.nextSection()) != END) {
+            switch (section) {
+                case SITES -> counts.put("sites", loadSection(connection, reader,
+                        "INSERT INTO site (id, status, status_time, last_error, url, name, page_count) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                        insert -> {
+                            Site site = new Site();
+                            site.setId(reader.readInt());
+                            site.setStatus(Status.valueOf(reader.readString()));
+                            long statusTime = reader.readLong();
+                            site.setLastError(reader.readString());
+                            site.setUrl(reader.readString());
+                            site.setName(reader.readString());
+                            Long pageCount = reader.readNullableLong();
+                            if (site.getStatus() == Status.INDEXING) {
+                                site.setStatus(Status.FAILED);
+                                site.setLastError("Exported while indexing, it resumes on the next start");
+                                statusTime = System.currentTimeMillis();
+                            }
+                            sites.put(site.getId(), site);
+                            insert.setInt(1, site.getId());
+                            insert.setString(2, site.getStatus().name());
+                            insert.setTimestamp(3, new Timestamp(statusTime));
+                            insert.setString(4, site.getLastError());
+                            insert.setString(5, site.getUrl());
+                            insert.setString(6, site.getName());
+                            insert.setObject(7, pageCount, Types.INTEGER);
+                        }));
+                case PAGES -> {
+                    int[] id = new int[1];
+                    counts.put("pages", loadSection(connection, reader,
+                            "INSERT INTO page (id, site_id, path, path_hash, code, content, title, fingerprint, canonical_page_id) " +
+                                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                            insert -> {
+                                id[0] += reader.readInt();
+                                insert.setInt(1, id[0]);
+                                insert.setInt(2, reader.readInt());
+                                insert.setString(3, reader.readString());
+                                insert.setObject(4, reader.readNullableLong(), Types.BIGINT);
+                                insert.setInt(5, reader.readInt());
+                                insert.setString(6, reader.readString());
+                                insert.setString(7, reader.readString());
+                                insert.setObject(8, reader.readNullableLong(), Types.BIGINT);
+                                insert.setObject(9, reader.readNullableInt(), Types.INTEGER);
+                            }));
+                }
+                case LEMMAS -> {
+                    int[] id = new int[1];
+                    counts.put("lemmas", loadSection(connection, reader,
+                            "INSERT INTO lemma (id, site_id, lemma, frequency) VALUES (?, ?, ?, ?)",
+                            insert -> {
+                                id[0] += reader.readInt();
+                                insert.setInt(1, id[0]);
+                                insert.setInt(2, reader.readInt());
+                                String lemma = reader.readString();
+                                insert.setString(3, lemma);
+                                insert.setInt(4, reader.readInt());
+                                if (segmentIndex.isEnabled()) {
+                                    lemmas.put(id[0], lemma);
+                                }
+                            }));
+                }
+                case INDEXES -> counts.put("indexes", loadIndexes(connection, reader, sites, lemmas));
+                default -> throw new IOException("Unknown archive section " + section);
+            }
+        }
+        return counts;
+    }
+
+    private long loadIndexes(Connection connection, ChunkReader reader, Map<Integer, Site> sites,
+                             Map<Integer, String> lemmas) throws SQLException, IOException {
+        int[] ids = new int[2];
+        Page[] page = new Page[1];
+        Map<String, Float> ranks = new HashMap<>();
+        long rows = loadSection(connection, reader,
+                "INSERT INTO search_index (page_id, lemma_id, `rank`, field_frequencies) VALUES (?, ?, ?, ?)",
+                insert -> {
+                    int pageDelta = reader.readInt();
+                    ids[1] = pageDelta == 0 ? ids[1] + reader.readInt() : reader.readInt();
+                    ids[0] += pageDelta;
+                    float rank = reader.readFloat();
+                    insert.setInt(1, ids[0]);
+                    insert.setInt(2, ids[1]);
+                    insert.setFloat(3, rank);
+                    insert.setObject(4, reader.readNullableInt(), Types.INTEGER);
+                    if (segmentIndex.isEnabled()) {
+                        if (pageDelta != 0) {
+                            addToSegments(page[0], ranks);
+                            page[0] = null;
+                        }
+                        if (page[0] == null) {
+                            page[0] = pageStub(connection, ids[0], sites);
+                        }
+                        ranks.put(lemmas.get(ids[1]), rank);
+                    }
+                });
+        if (segmentIndex.isEnabled()) {
+            addToSegments(page[0], ranks);
+            sites.values().forEach(segmentIndex::flush);
+        }
+        return rows;
+    }
+
+    private long loadSection(Connection connection, ChunkReader reader, String sql, RowReader rowReader)
+            throws SQLException, IOException {
+        long rows = 0;
+        try (PreparedStatement insert = connection.prepareStatement(sql)) {
+            while (reader.nextRow()) {
+                rowReader.read(insert);
+                insert.addBatch();
+                if (++rows % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        return rows;
+    }
+
+    private void addToSegments(Page page, Map<String, Float> ranks) {
+        if (page != null && !ranks.isEmpty()) {
+            segmentIndex.addPage(page, Map.copyOf(ranks));
+        }
+        ranks.clear();
+    }
+
+    private static Page pageStub(Connection connection, int pageId, Map<Integer, Site> sites) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement("SELECT site_id FROM page WHERE id = ?")) {
+            query.setInt(1, pageId);
+            try (ResultSet row = query.executeQuery()) {
+                if (!row.next()) {
+                    throw new SQLException("Index row of a missing page " + pageId);
+                }
+                Page page = new Page();
+                page.setId(pageId);
+                page.setSite(sites.get(row.getInt(1)));
+                return page;
+            }
+        }
+    }
+
+    /**
+     * Brings the in-memory structures in line with the imported rows.
+     */
+    private void refresh() {
+        indexSnapshot.invalidate();
+        indexSnapshot.rebuild();
+        for (Site site : siteRepository.findAll()) {
+            indexingCounters.recount(site);
+            suggestService.scheduleRebuild(site);
+        }
+        spellingCorrector.scheduleRebuild();
+        searchResultCache.clear();
+    }
+
+    private <T> T withConnection(ConnectionWork<T> work) throws IOException {
+        try {
+            return jdbcTemplate.execute((ConnectionCallback<T>) connection -> {
+                try {
+                    return work.run(connection);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface ConnectionWork<T> {
+        T run(Connection connection) throws SQLException, IOException;
+    }
+
+    private static boolean isMySql(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+    }
+}
@@ -0,0 +1,142 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import searchengine.config.StatisticsSettings;
+import searchengine.model.Site;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Page counts per site, kept by the indexing pipeline so the statistics endpoint does not
+ * have to count rows. Counts are written to the site table on shutdown and cleared once read
+ * on startup, so a stored count is always from a clean shutdown; after a crash the sites
+ * without one are counted with one grouped query.
+ */
+@Slf4j
+@Component
+@DependsOn("schemaMigration")
+public class IndexingCounters {
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final StatisticsSettings settings;
+    private final Map<Integer, SiteCounter> counters = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    private static final class SiteCounter {
+        private final LongAdder pages = new LongAdder();
+        private long lastPages;
+        private long lastNanos = System.nanoTime();
+        private volatile double pagesPerSecond;
+    }
+
+    @Autowired
+    public IndexingCounters(SiteRepository siteRepository,
+                            PageRepository pageRepository,
+                            StatisticsSettings settings) {
+        this.siteRepository = siteRepository;
+        this.pageRepository = pageRepository;
+        this.settings = settings;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<Site> sites = siteRepository.findAll();
+        Map<Integer, Long> counts = new HashMap<>();
+        if (sites.stream().anyMatch(site -> site.getPageCount() == null)) {
+            for (Object[] row : pageRepository.countPagesPerSite()) {
+                counts.put((Integer) row[0], ((Number) row[1]).longValue());
+            }
+        }
+        for (Site site : sites) {
+            long pages = site.getPageCount() != null ? site.getPageCount() : counts.getOrDefault(site.getId(), 0L);
+            SiteCounter counter = counter(site.getId());
+            counter.pages.add(pages);
+            counter.lastPages = pages;
+        }
+        // until the shutdown writes them back, the stored counts may go stale
+        siteRepository.clearPageCounts();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "indexing-rates");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::tick,
+                settings.getRateIntervalSeconds(), settings.getRateIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        counters.forEach((siteId, counter) -> {
+            try {
+                siteRepository.updatePageCount(siteId, (int) counter.pages.sum());
+            } catch (RuntimeException e) {
+                log.warn("Failed to persist page count of site {}", siteId, e);
+            }
+        });
+    }
+
+    /**
+     * Counts the pages of a site again, after its rows were changed outside the indexing pipeline.
+     */
+    public void recount(Site site) {
+        SiteCounter counter = counter(site.getId());
+        counter.pages.add(pageRepository.countBySite(site) - counter.pages.sum());
+    }
+
+    public void pageAdded(Site site) {
+        counter(site.getId()).pages.increment();
+    }
+
+    public void pageRemoved(Site site) {
+        counter(site.getId()).pages.decrement();
+    }
+
+    public void pagesRemoved(Site site, int count) {
+        counter(site.getId()).pages.add(-count);
+    }
+
+    public long pages(Site site) {
+        SiteCounter counter = counters.get(site.getId());
+        return counter == null ? 0 : counter.pages.sum();
+    }
+
+    /**
+     * Pages per second over the last rate interval.
+     */
+    public double pagesPerSecond(Site site) {
+        SiteCounter counter = counters.get(site.getId());
+        return counter == null ? 0 : counter.pagesPerSecond;
+    }
+
+    private SiteCounter counter(int siteId) {
+        return counters.computeIfAbsent(siteId, id -> new SiteCounter());
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        for (SiteCounter counter : counters.values()) {
+            long pages = counter.pages.sum();
+            double seconds = (now - counter.lastNanos) / 1e9;
+            counter.pagesPerSecond = seconds > 0 ? Math.max(0, pages - counter.lastPages) / seconds : 0;
+            counter.lastPages = pages;
+            counter.lastNanos = now;
+        }
+    }
+}
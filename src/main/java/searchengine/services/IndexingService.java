@@ -1,24 +1,33 @@
 package searchengine.services;
 
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import org.apache.lucene.morphology.LuceneMorphology;
 import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.config.SitesList;
+import searchengine.index.IndexSnapshot;
+import searchengine.index.SegmentIndex;
+import searchengine.index.TermDictionary;
 import searchengine.model.*;
-import searchengine.repositories.IndexRepository;
-import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageIndexWriter;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.search.SearchResultCache;
 import searchengine.utils.PageCrawlerTaskFactory;
+import searchengine.utils.PagePath;
+import searchengine.utils.PathHash;
+import searchengine.utils.RobotsRules;
+import searchengine.utils.SimHash;
+import searchengine.utils.SitemapParser;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +35,7 @@ import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -37,10 +47,22 @@ public class IndexingService {
     private final SitesList sitesList;
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
-    private final LemmaRepository lemmaRepository;
-    private final IndexRepository indexRepository;
+    private final PageIndexWriter pageIndexWriter;
     private final LemmaExtractor lemmaExtractor;
     private final PageCrawlerTaskFactory pageCrawlerTaskFactory;
+    private final SegmentIndex segmentIndex;
+    private final TermDictionary termDictionary;
+    private final IndexSnapshot indexSnapshot;
+    private final IndexingCounters indexingCounters;
+    private final KnownPages knownPages;
+    private final PageFetcher pageFetcher;
+    private final CrawlCheckpoint crawlCheckpoint;
+    private final CrawlRules crawlRules;
+    private final NearDuplicates nearDuplicates;
+    private final SuggestService suggestService;
+    private final SpellingCorrector spellingCorrector;
+    private final SearchResultCache searchResultCache;
+    private final PageRemover pageRemover;
     private ExecutorService executorService;
 
     public boolean isIndexing() {
@@ -50,17 +72,56 @@ public class IndexingService {
     public IndexingService(SitesList sitesList,
                            SiteRepository siteRepository,
                            PageRepository pageRepository,
-                           LemmaRepository lemmaRepository,
-                           IndexRepository indexRepository,
+                           PageIndexWriter pageIndexWriter,
                            LemmaExtractor lemmaExtractor,
-                           PageCrawlerTaskFactory pageCrawlerTaskFactory) throws IOException {
+                           PageCrawlerTaskFactory pageCrawlerTaskFactory,
+                           SegmentIndex segmentIndex,
+                           TermDictionary termDictionary,
+                           IndexSnapshot indexSnapshot,
+                           IndexingCounters indexingCounters,
+                           KnownPages knownPages,
+                           PageFetcher pageFetcher,
+                           CrawlCheckpoint crawlCheckpoint,
+                           CrawlRules crawlRules,
+                           NearDuplicates nearDuplicates,
+                           SuggestService suggestService,
+                           SpellingCorrector spellingCorrector,
+                           SearchResultCache searchResultCache,
+                           PageRemover pageRemover) throws IOException {
         this.sitesList = sitesList;
         this.siteRepository = siteRepository;
         this.pageRepository = pageRepository;
-        this.lemmaRepository = lemmaRepository;
-        this.indexRepository = indexRepository;
+        this.pageIndexWriter = pageIndexWriter;
         this.lemmaExtractor = lemmaExtractor;
         this.pageCrawlerTaskFactory = pageCrawlerTaskFactory;
+        this.segmentIndex = segmentIndex;
+        this.termDictionary = termDictionary;
+        this.indexSnapshot = indexSnapshot;
+        this.indexingCounters = indexingCounters;
+        this.knownPages = knownPages;
+        this.pageFetcher = pageFetcher;
+        this.crawlCheckpoint = crawlCheckpoint;
+        this.crawlRules = crawlRules;
+        this.nearDuplicates = nearDuplicates;
+        this.suggestService = suggestService;
+        this.spellingCorrector = spellingCorrector;
+        this.searchResultCache = searchResultCache;
+        this.pageRemover = pageRemover;
+    }
+
+    /**
+     * Sites still marked as indexing were cut off by a crash; their crawl resumes on the next start.
+     */
+    @PostConstruct
+    public void markInterrupted() {
+        for (Site site : siteRepository.findAll()) {
+            if (site.getStatus() == Status.INDEXING) {
+                site.setStatus(Status.FAILED);
+                site.setLastError("Indexing was interrupted, it resumes on the next start");
+                site.setStatusTime(LocalDateTime.now());
+                siteRepository.save(site);
+            }
+        }
     }
 
     public synchronized void startIndexing() {
@@ -68,6 +129,7 @@ public class IndexingService {
             System.err.println("Indexing has already started.");
             return;
         }
+        indexSnapshot.invalidate();
         executorService = Executors.newFixedThreadPool(10);
 
         for (searchengine.config.Site siteConfig : sitesList.getSites()) {
@@ -89,6 +151,7 @@ public class IndexingService {
             Thread.currentThread().interrupt();
         } finally {
             indexing.set(false);
+            indexSnapshot.save();
         }
     }
 
@@ -121,58 +184,74 @@ public class IndexingService {
 
     @Transactional
     public boolean indexPage(String url) throws IOException {
-        String siteUrl = url.split("/")[2];
-        Optional<Site> optionalSite = siteRepository.findByUrl(url);
-        Site site;
-        if (optionalSite.isEmpty()) {
-            site = createSiteFromConfig(siteUrl);
-            if (site == null) {
-                throw new IllegalArgumentException("Site not found in configuration: " + siteUrl);
-            }
-        } else {
-            site = optionalSite.get();
-        }
+        searchengine.config.Site siteConfig = sitesList.getSites().stream()
+                .filter(config -> PagePath.relativize(config.getUrl(), url) != null)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Site not found in configuration: " + url));
+        String path = PagePath.relativize(siteConfig.getUrl(), url);
+        Site site = siteRepository.findByUrl(siteConfig.getUrl())
+                .orElseGet(() -> createSite(siteConfig));
+        long pathHash = PathHash.of(path);
 
-        Optional<Page> existingPage = pageRepository.findByPath(url);
-        if (existingPage.isPresent()) {
-            Page page = existingPage.get();
-            indexRepository.deleteByPage(page);
-            lemmaRepository.deleteBySite(site);
-            pageRepository.delete(page);
+        // fetched first, so a page that cannot be fetched now keeps its indexed copy
+        PageFetcher.Result result;
+        try {
+            result = pageFetcher.fetch(url);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + url, e);
+        }
+        if (result.document() == null) {
+            throw new IOException("Page answered " + result.statusCode() + " or is not HTML: " + url);
         }
+        Document document = result.document();
 
-        Connection.Response response = Jsoup.connect(url).execute();
-        Document document = response.parse();
-        String content = document.html();
-        String text = document.text();
-        int statusCode = response.statusCode();
+        // the term dictionary changes below, a crash before the next save must not restore the old snapshot
+        indexSnapshot.invalidate();
+        pageRepository.findBySiteAndPathHash(site, pathHash).ifPresent(pageRemover::remove);
 
         Page page = new Page();
         page.setSite(site);
-        page.setPath(url);
-        page.setCode(statusCode);
-        page.setContent(content);
+        page.setPath(path);
+        page.setCode(result.statusCode());
+        page.setContent(document.html());
+        page.setTitle(document.title());
+        Map<String, Integer> fieldFrequencies = lemmaExtractor.extractFieldFrequencies(document);
+        Map<String, Float> ranks = lemmaExtractor.rank(fieldFrequencies);
+        // a page indexed on request is indexed even if it duplicates another, but others can duplicate it
+        if (nearDuplicates.isComparable(ranks.size())) {
+            page.setFingerprint(SimHash.of(ranks));
+        }
         pageRepository.save(page);
+        indexingCounters.pageAdded(site);
+        knownPages.claim(site, pathHash);
+        if (page.getFingerprint() != null) {
+            nearDuplicates.add(site, page.getId(), page.getFingerprint());
+        }
 
-        Map<String, Integer> lemmas = lemmaExtractor.extractLemmas(text);
-        lemmaExtractor.saveLemmasAndIndexes(page, lemmas, lemmaRepository, indexRepository);
+        pageIndexWriter.saveLemmasAndIndexes(page, fieldFrequencies, ranks);
+        segmentIndex.addPage(page, ranks);
+        segmentIndex.flush(site);
+        termDictionary.addPage(page, ranks);
+        suggestService.scheduleRebuild(site);
+        spellingCorrector.scheduleRebuild();
+        searchResultCache.clear();
 
         return true;
     }
 
-    private Site createSiteFromConfig(String siteUrl) {
-        for (searchengine.config.Site siteConfig : sitesList.getSites()) {
-            if (siteConfig.getUrl().equals(siteUrl)) {
-                Site site = new Site();
-                site.setUrl(siteConfig.getUrl());
-                site.setName(siteConfig.getName());
-                site.setStatus(Status.INDEXING);
-                site.setStatusTime(LocalDateTime.now());
-                siteRepository.save(site);
-                return site;
-            }
-        }
-        return null;
+    private static boolean isModifiedSince(SitemapParser.Entry entry, LocalDateTime lastCrawl) {
+        return lastCrawl != null && entry.lastModified() != null
+                && entry.lastModified().isAfter(lastCrawl.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private Site createSite(searchengine.config.Site siteConfig) {
+        Site site = new Site();
+        site.setUrl(siteConfig.getUrl());
+        site.setName(siteConfig.getName());
+        site.setStatus(Status.INDEXING);
+        site.setStatusTime(LocalDateTime.now());
+        return siteRepository.save(site);
     }
 
     private void indexSite(searchengine.config.Site siteConfig) {
@@ -188,6 +267,8 @@ public class IndexingService {
         } else {
             site = optionalSite.get();
         }
+        // pages a sitemap reports as modified since then are fetched again
+        LocalDateTime lastCrawl = site.getStatus() == Status.INDEXED ? site.getStatusTime() : null;
         site.setStatus(Status.INDEXING);
         site.setStatusTime(LocalDateTime.now());
         siteRepository.save(site);
@@ -197,7 +278,7 @@ public class IndexingService {
             if (!indexing.get()) {
                 throw new InterruptedException("Indexing stopped by user.");
             }
-            crawlSite(site);
+            crawlSite(site, lastCrawl);
 
             if (!indexing.get()) {
                 site.setStatus(Status.FAILED);
@@ -228,18 +309,78 @@ public class IndexingService {
         }
     }
 
-    private void crawlSite(Site site) {
+    private void crawlSite(Site site, LocalDateTime lastCrawl) throws InterruptedException {
         if (!indexing.get() || Thread.currentThread().isInterrupted()) {
             return;
         }
+        knownPages.warm(site);
+        nearDuplicates.warm(site);
+        RobotsRules rules = crawlRules.load(site);
+        List<PageCrawlerTask> tasks = new ArrayList<>();
+        tasks.add(pageCrawlerTaskFactory.create(site.getUrl(), site, indexing.get()));
+        CrawlCheckpoint.Progress progress = crawlCheckpoint.open(site);
+        if (!progress.isEmpty()) {
+            System.out.println("Resuming crawl of " + site.getUrl() + " with " + progress.pending().size() + " queued pages");
+            for (Long pathHash : progress.done()) {
+                knownPages.claim(site, pathHash);
+            }
+            for (Map.Entry<Long, String> entry : progress.pending().entrySet()) {
+                if (!knownPages.claim(site, entry.getKey())) {
+                    // stored before the crash but not logged as done, maybe without all of its index rows
+                    pageRepository.findBySiteAndPathHash(site, entry.getKey()).ifPresent(pageRemover::remove);
+                }
+                PageCrawlerTask task = pageCrawlerTaskFactory.create(entry.getValue(), site, indexing.get());
+                task.setClaimed(true);
+                tasks.add(task);
+            }
+        }
+        int seeded = tasks.size();
+        for (SitemapParser.Entry entry : crawlRules.sitemapEntries(site, rules)) {
+            String path = PagePath.relativize(site.getUrl(), entry.url());
+            if (path == null || !crawlRules.isAllowed(site, entry.url())) {
+                continue;
+            }
+            long pathHash = PathHash.of(path);
+            boolean replaced = false;
+            if (!knownPages.claim(site, pathHash)) {
+                if (!isModifiedSince(entry, lastCrawl) || progress.pending().containsKey(pathHash)) {
+                    continue;
+                }
+                if (pageRepository.findBySiteAndPathHash(site, pathHash).isEmpty()) {
+                    // queued by this crawl already
+                    continue;
+                }
+                replaced = true;
+            }
+            crawlCheckpoint.queued(site, pathHash, entry.url());
+            PageCrawlerTask task = pageCrawlerTaskFactory.create(entry.url(), site, indexing.get());
+            task.setClaimed(true);
+            // the stored copy is removed only once the new one is fetched
+            task.setReplace(replaced);
+            tasks.add(task);
+        }
+        if (tasks.size() > seeded) {
+            System.out.println("Seeded crawl of " + site.getUrl() + " with " + (tasks.size() - seeded) + " sitemap pages");
+        }
+
         ForkJoinPool pool = new ForkJoinPool();
-        PageCrawlerTask task = pageCrawlerTaskFactory.create(site.getUrl(), site, indexing.get());
-        pool.invoke(task);
+        boolean completed = false;
+        try {
+            tasks.forEach(pool::execute);
+            tasks.forEach(ForkJoinTask::join);
+            segmentIndex.flush(site);
+            completed = indexing.get() && !Thread.currentThread().isInterrupted();
+        } finally {
+            pool.shutdownNow();
+            crawlCheckpoint.finish(site, completed);
+            suggestService.scheduleRebuild(site);
+            spellingCorrector.scheduleRebuild();
+            searchResultCache.clear();
+        }
 
         System.out.println("Crawled site: " + site.getUrl());
         if (Thread.currentThread().isInterrupted()) {
             System.err.println("Task interrupted: " + site.getUrl());
-            return;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package searchengine.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.model.Site;
+import searchengine.repositories.PageRepository;
+import searchengine.utils.LongHashSet;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Path hashes of the pages of each site that are stored or already queued by the crawler,
+ * so link dedup is a lookup in memory instead of a database query per link.
+ */
+@Component
+public class KnownPages {
+    private final PageRepository pageRepository;
+    private final Map<Integer, LongHashSet> sites = new ConcurrentHashMap<>();
+
+    @Autowired
+    public KnownPages(PageRepository pageRepository) {
+        this.pageRepository = pageRepository;
+    }
+
+    /**
+     * Reloads the hashes of the site's stored pages, called before a crawl starts.
+     */
+    public void warm(Site site) {
+        List<Long> hashes = pageRepository.findPathHashesBySite(site);
+        LongHashSet set = new LongHashSet(hashes.size());
+        for (Long hash : hashes) {
+            if (hash != null) {
+                set.add(hash);
+            }
+        }
+        sites.put(site.getId(), set);
+    }
+
+    /**
+     * Marks the page as known. Returns false if it already was, so exactly one caller gets to crawl it.
+     */
+    public boolean claim(Site site, long pathHash) {
+        LongHashSet set = sites.computeIfAbsent(site.getId(), id -> new LongHashSet(1024));
+        synchronized (set) {
+            return set.add(pathHash);
+        }
+    }
+
+    public boolean contains(Site site, long pathHash) {
+        LongHashSet set = sites.get(site.getId());
+        if (set == null) {
+            return false;
+        }
+        synchronized (set) {
+            return set.contains(pathHash);
+        }
+    }
+}
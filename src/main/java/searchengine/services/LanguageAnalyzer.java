@@ -0,0 +1,82 @@
+package searchengine.services;
+
+import org.apache.lucene.morphology.LuceneMorphology;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BinaryOperator;
+
+/**
+ * Morphology of one language with a cache of word form to lemmas shared by all threads.
+ * Forms that are function words (by their morphology tags) or unknown map to no lemmas.
+ */
+final class LanguageAnalyzer {
+    private static final int CACHE_LIMIT = 200_000;
+    private static final List<String> NO_LEMMAS = List.of();
+
+    private final LuceneMorphology morphology;
+    private final String[] functionWordTags;
+    private final Map<String, List<String>> cache = new ConcurrentHashMap<>();
+
+    LanguageAnalyzer(LuceneMorphology morphology, String... functionWordTags) {
+        this.morphology = morphology;
+        this.functionWordTags = functionWordTags;
+    }
+
+    List<String> lemmas(String form) {
+        List<String> lemmas = cache.get(form);
+        if (lemmas == null) {
+            lemmas = analyze(form);
+            if (cache.size() >= CACHE_LIMIT) {
+                cache.clear();
+            }
+            cache.put(form, lemmas);
+        }
+        return lemmas;
+    }
+
+    /**
+     * Adds the count of each form to each of its lemmas.
+     */
+    void addLemmas(Map<String, Integer> forms, Map<String, Integer> lemmaFrequency, BinaryOperator<Integer> merge) {
+        for (Map.Entry<String, Integer> entry : forms.entrySet()) {
+            for (String lemma : lemmas(entry.getKey())) {
+                lemmaFrequency.merge(lemma, entry.getValue(), merge);
+            }
+        }
+    }
+
+    private List<String> analyze(String form) {
+        try {
+            for (String info : morphology.getMorphInfo(form)) {
+                if (isFunctionWord(info)) {
+                    return NO_LEMMAS;
+                }
+            }
+            // the dictionary spells some lemmas with ё, text is folded to е before analysis
+            return morphology.getNormalForms(form).stream()
+                    .map(lemma -> lemma.replace('ё', 'е'))
+                    .distinct()
+                    .toList();
+        } catch (RuntimeException e) {
+            // letters outside the dictionary alphabet
+            return NO_LEMMAS;
+        }
+    }
+
+    /**
+     * Morph info reads "lemma|code POS grammemes"; the part of speech decides.
+     */
+    private boolean isFunctionWord(String info) {
+        int start = info.indexOf(' ') + 1;
+        int end = info.indexOf(' ', start);
+        String partOfSpeech = end < 0 ? info.substring(start) : info.substring(start, end);
+        for (String tag : functionWordTags) {
+            if (tag.equals(partOfSpeech)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,97 +1,151 @@
 package searchengine.services;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.lucene.morphology.LuceneMorphology;
+import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
 import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import searchengine.model.Index;
-import searchengine.model.Lemma;
-import searchengine.model.Page;
-import searchengine.repositories.IndexRepository;
-import searchengine.repositories.LemmaRepository;
+import searchengine.config.AnalysisSettings;
+import searchengine.index.FieldFrequencies;
+import searchengine.index.FieldRanking;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BinaryOperator;
 
+/**
+ * Splits text into Cyrillic and Latin words in one pass and lemmatizes them with the Russian
+ * and English morphology. Each distinct word form is analyzed once per text, and the
+ * analyzers cache results across texts.
+ */
 @Slf4j
 @Service
 public class LemmaExtractor {
-    private final LuceneMorphology luceneMorphology;
-    private static final String WORD_TYPE_REGEX = "\\W\\w&&[^а-яА-Я\\s]";
-    private static final String[] PARTICLES_NAMES = new String[]{"МЕЖД", "ПРЕДЛ", "СОЮЗ", "ЧАСТ"};
+    private static final Set<String> HEADINGS = Set.of("h1", "h2", "h3");
+    // below this many distinct forms per language, handing one language to another thread costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private final LanguageAnalyzer russian;
+    private final LanguageAnalyzer english;
+    private final FieldRanking ranking;
 
     public LemmaExtractor() throws IOException {
-        this.luceneMorphology = new RussianLuceneMorphology();
+        this(new FieldRanking(new AnalysisSettings()));
     }
 
-    public HashMap<String, Integer> extractLemmas(String text) {
-        String[] words = arrayContainsRussianWords(text);
-        HashMap<String, Integer> lemmaFrequency = new HashMap<>();
-
-        for (String word : words) {
-            if (isCorrectWordForm(word)) {
-                List<String> wordBaseForms = luceneMorphology.getNormalForms(word);
-                if (!anyWordBaseBelongToParticle(wordBaseForms)) {
-                    for (String baseForm : wordBaseForms) {
-                        lemmaFrequency.put(baseForm, lemmaFrequency.getOrDefault(baseForm, 0) + 1);
-                    }
-                }
-            }
-        }
-        return lemmaFrequency;
+    @Autowired
+    public LemmaExtractor(FieldRanking ranking) throws IOException {
+        this.russian = new LanguageAnalyzer(new RussianLuceneMorphology(), "МЕЖД", "ПРЕДЛ", "СОЮЗ", "ЧАСТ");
+        this.english = new LanguageAnalyzer(new EnglishLuceneMorphology(), "ARTICLE", "PREP", "CONJ", "PART", "PN", "INT");
+        this.ranking = ranking;
     }
 
-    public Set<String> getLemmaSet(String text) {
-        return extractLemmas(text).keySet();
+    public HashMap<String, Integer> extractLemmas(String text) {
+        Map<String, Integer> russianForms = new HashMap<>();
+        Map<String, Integer> englishForms = new HashMap<>();
+        WordSplitter splitter = new WordSplitter(russianForms, englishForms);
+        splitter.feed(text);
+        splitter.breakWord();
+        return lemmatize(russianForms, englishForms, Integer::sum);
     }
 
-    public void saveLemmasAndIndexes(Page page,
-                                     Map<String, Integer> lemmas,
-                                     LemmaRepository lemmaRepository,
-                                     IndexRepository indexRepository) {
-        List<Lemma> lemmaList = new ArrayList<>();
-        List<Index> indexList = new ArrayList<>();
+    /**
+     * Occurrences of each lemma of a page per field, packed as {@link FieldFrequencies}.
+     * Text nodes are fed to the splitter as the tree is walked, without building the page text;
+     * a heading inside a link counts as heading, a link inside a heading too.
+     */
+    public HashMap<String, Integer> extractFieldFrequencies(Document document) {
+        Map<String, Integer> russianForms = new HashMap<>();
+        Map<String, Integer> englishForms = new HashMap<>();
+        WordSplitter splitter = new WordSplitter(russianForms, englishForms, FieldFrequencies::merge);
 
-        for (Map.Entry<String, Integer> entry : lemmas.entrySet()) {
-            Lemma lemma = new Lemma();
-            lemma.setSite(page.getSite());
-            lemma.setLemma(entry.getKey());
-            lemma.setFrequency(entry.getValue());
-            lemmaList.add(lemma);
+        splitter.setOccurrence(FieldFrequencies.of(FieldFrequencies.TITLE, 1));
+        splitter.feed(document.title());
+        splitter.setOccurrence(FieldFrequencies.of(FieldFrequencies.BODY, 1));
+        if (document.body() != null) {
+            new NodeTraversor(new NodeVisitor() {
+                private int headingDepth;
+                private int anchorDepth;
 
-            Index index = new Index();
-            index.setPage(page);
-            index.setLemma(lemma);
-            index.setRank(entry.getValue());
-            indexList.add(index);
-        }
+                @Override
+                public void head(Node node, int depth) {
+                    if (node instanceof TextNode textNode) {
+                        splitter.feed(textNode.getWholeText());
+                    } else if (node instanceof Element element) {
+                        String tag = element.tagName();
+                        if (HEADINGS.contains(tag)) {
+                            headingDepth++;
+                            updateField();
+                        } else if (tag.equals("a")) {
+                            anchorDepth++;
+                            updateField();
+                        } else if (element.isBlock() || tag.equals("br")) {
+                            splitter.breakWord();
+                        }
+                    }
+                }
 
-        lemmaRepository.saveAll(lemmaList);
-        indexRepository.saveAll(indexList);
-    }
+                @Override
+                public void tail(Node node, int depth) {
+                    if (node instanceof Element element) {
+                        String tag = element.tagName();
+                        if (HEADINGS.contains(tag)) {
+                            headingDepth--;
+                            updateField();
+                        } else if (tag.equals("a")) {
+                            anchorDepth--;
+                            updateField();
+                        } else if (element.isBlock()) {
+                            splitter.breakWord();
+                        }
+                    }
+                }
 
-    private boolean anyWordBaseBelongToParticle(List<String> wordBaseForms) {
-        return wordBaseForms.stream().anyMatch(this::hasParticleProperty);
+                private void updateField() {
+                    int field = headingDepth > 0 ? FieldFrequencies.HEADING
+                            : anchorDepth > 0 ? FieldFrequencies.ANCHOR
+                            : FieldFrequencies.BODY;
+                    splitter.setOccurrence(FieldFrequencies.of(field, 1));
+                }
+            }).traverse(document.body());
+        }
+        splitter.breakWord();
+        return lemmatize(russianForms, englishForms, FieldFrequencies::merge);
     }
 
-    private boolean hasParticleProperty(String wordBase) {
-        for (String property : PARTICLES_NAMES) {
-            if (wordBase.toUpperCase().contains(property)) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Weighted rank of each lemma from its field frequencies.
+     */
+    public HashMap<String, Float> rank(Map<String, Integer> fieldFrequencies) {
+        return ranking.rank(fieldFrequencies);
     }
 
-    private String[] arrayContainsRussianWords(String text) {
-        return text.toLowerCase(Locale.ROOT)
-                .replaceAll("([^а-я\\s])", " ")
-                .replaceAll("\\s+", " ")
-                .trim()
-                .split("\\s+");
+    public Set<String> getLemmaSet(String text) {
+        return extractLemmas(text).keySet();
     }
 
-    private boolean isCorrectWordForm(String word) {
-        return word.matches(WORD_TYPE_REGEX);
+    private HashMap<String, Integer> lemmatize(Map<String, Integer> russianForms,
+                                               Map<String, Integer> englishForms,
+                                               BinaryOperator<Integer> merge) {
+        HashMap<String, Integer> lemmaFrequency = new HashMap<>();
+        if (russianForms.size() >= PARALLEL_THRESHOLD && englishForms.size() >= PARALLEL_THRESHOLD) {
+            Map<String, Integer> englishLemmas = new HashMap<>();
+            ForkJoinTask<?> englishTask = ForkJoinPool.commonPool().submit(() -> english.addLemmas(englishForms, englishLemmas, merge));
+            russian.addLemmas(russianForms, lemmaFrequency, merge);
+            englishTask.join();
+            lemmaFrequency.putAll(englishLemmas);
+        } else {
+            russian.addLemmas(russianForms, lemmaFrequency, merge);
+            english.addLemmas(englishForms, lemmaFrequency, merge);
+        }
+        return lemmaFrequency;
     }
-}
\ No newline at end of file
+}
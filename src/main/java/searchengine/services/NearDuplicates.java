@@ -0,0 +1,127 @@
+package searchengine.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.DuplicateSettings;
+import searchengine.model.Site;
+import searchengine.repositories.PageRepository;
+import searchengine.utils.SimHash;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SimHash fingerprints of the indexed pages of each site in a banded LSH table. The 64 bits are
+ * cut into max-distance + 1 bands, so two fingerprints within that distance agree on at least
+ * one band whole and only pages sharing a band value are compared.
+ */
+@Component
+public class NearDuplicates {
+    private final DuplicateSettings settings;
+    private final PageRepository pageRepository;
+    private final Map<Integer, SiteTable> sites = new ConcurrentHashMap<>();
+
+    private record Fingerprint(int pageId, long value) {
+    }
+
+    private static final class SiteTable {
+        private final int bandBits;
+        private final List<Map<Long, List<Fingerprint>>> bands = new ArrayList<>();
+
+        SiteTable(int bandCount) {
+            bandBits = Long.SIZE / bandCount;
+            for (int i = 0; i < bandCount; i++) {
+                bands.add(new HashMap<>());
+            }
+        }
+
+        long band(long fingerprint, int band) {
+            return bandBits == Long.SIZE ? fingerprint : (fingerprint >>> (band * bandBits)) & ((1L << bandBits) - 1);
+        }
+
+        synchronized Integer find(long fingerprint, int maxDistance) {
+            for (int band = 0; band < bands.size(); band++) {
+                for (Fingerprint candidate : bands.get(band).getOrDefault(band(fingerprint, band), List.of())) {
+                    if (SimHash.distance(candidate.value(), fingerprint) <= maxDistance) {
+                        return candidate.pageId();
+                    }
+                }
+            }
+            return null;
+        }
+
+        synchronized void add(int pageId, long fingerprint) {
+            Fingerprint entry = new Fingerprint(pageId, fingerprint);
+            for (int band = 0; band < bands.size(); band++) {
+                bands.get(band).computeIfAbsent(band(fingerprint, band), key -> new ArrayList<>(1)).add(entry);
+            }
+        }
+
+        synchronized void remove(int pageId, long fingerprint) {
+            for (int band = 0; band < bands.size(); band++) {
+                long key = band(fingerprint, band);
+                List<Fingerprint> bucket = bands.get(band).get(key);
+                if (bucket != null) {
+                    bucket.removeIf(entry -> entry.pageId() == pageId);
+                    if (bucket.isEmpty()) {
+                        bands.get(band).remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    @Autowired
+    public NearDuplicates(DuplicateSettings settings, PageRepository pageRepository) {
+        this.settings = settings;
+        this.pageRepository = pageRepository;
+    }
+
+    /**
+     * Reloads the fingerprints of the site's indexed pages, called before a crawl starts.
+     * Pages too short to compare and duplicates have none stored.
+     */
+    public void warm(Site site) {
+        SiteTable table = newTable();
+        if (settings.isEnabled()) {
+            for (Object[] row : pageRepository.findFingerprintsBySite(site)) {
+                table.add((Integer) row[0], (Long) row[1]);
+            }
+        }
+        sites.put(site.getId(), table);
+    }
+
+    /**
+     * The indexed page the fingerprint is a near-duplicate of, or null. Pages with fewer than
+     * min-lemmas lemmas are never reported, their fingerprints are too coarse to compare.
+     */
+    public Integer findCanonical(Site site, long fingerprint, int lemmaCount) {
+        return isComparable(lemmaCount) ? table(site).find(fingerprint, settings.getMaxDistance()) : null;
+    }
+
+    public boolean isComparable(int lemmaCount) {
+        return settings.isEnabled() && lemmaCount >= settings.getMinLemmas();
+    }
+
+    public void add(Site site, int pageId, long fingerprint) {
+        table(site).add(pageId, fingerprint);
+    }
+
+    public void remove(Site site, int pageId, long fingerprint) {
+        SiteTable table = sites.get(site.getId());
+        if (table != null) {
+            table.remove(pageId, fingerprint);
+        }
+    }
+
+    private SiteTable table(Site site) {
+        return sites.computeIfAbsent(site.getId(), id -> newTable());
+    }
+
+    private SiteTable newTable() {
+        return new SiteTable(Math.min(8, Math.max(1, settings.getMaxDistance() + 1)));
+    }
+}
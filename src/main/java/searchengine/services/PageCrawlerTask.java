@@ -1,30 +1,33 @@
 package searchengine.services;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Connection;
-import org.jsoup.HttpStatusException;
-import org.jsoup.Jsoup;
-import org.jsoup.UnsupportedMimeTypeException;
-import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import searchengine.config.CrawlerSettings;
+import searchengine.index.SegmentIndex;
+import searchengine.index.TermDictionary;
+import searchengine.metrics.HotPathMetrics;
 import searchengine.model.Index;
 import searchengine.model.Lemma;
 import searchengine.model.Page;
 import searchengine.model.Site;
-import searchengine.repositories.IndexRepository;
-import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageIndexWriter;
 import searchengine.repositories.PageRepository;
+import searchengine.utils.PagePath;
+import searchengine.utils.PathHash;
+import searchengine.utils.SimHash;
 
 import java.io.IOException;
-import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 public class PageCrawlerTask extends RecursiveTask<Void> {
@@ -32,17 +35,26 @@ public class PageCrawlerTask extends RecursiveTask<Void> {
     private String url;
     @Setter
     private Site site;
+    // set on tasks created for discovered links, which claimed their page in KnownPages already
+    @Setter
+    private boolean claimed;
+    // set when a sitemap reported the stored page as modified, the stored copy is removed once this one is fetched
+    @Setter
+    private boolean replace;
     private final PageRepository pageRepository;
-    private final LemmaRepository lemmaRepository;
-    private final IndexRepository indexRepository;
+    private final PageIndexWriter pageIndexWriter;
     private final LemmaExtractor lemmaExtractor;
-
-    private static final int SLEEP_MIN = 500;
-    private static final int SLEEP_MAX = 5000;
-    private static final Set<String> visitedUrls = ConcurrentHashMap.newKeySet();
-
-    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/58.0.3029.110 Safari/537.3";
-    private static final String REFERRER = "http://www.google.com";
+    private final SegmentIndex segmentIndex;
+    private final TermDictionary termDictionary;
+    private final HotPathMetrics metrics;
+    private final CrawlerSettings crawlerSettings;
+    private final IndexingCounters indexingCounters;
+    private final KnownPages knownPages;
+    private final PageFetcher pageFetcher;
+    private final CrawlCheckpoint crawlCheckpoint;
+    private final CrawlRules crawlRules;
+    private final NearDuplicates nearDuplicates;
+    private final PageRemover pageRemover;
 
     private static final Logger logger = LoggerFactory.getLogger(PageCrawlerTask.class);
 
@@ -50,14 +62,34 @@ public class PageCrawlerTask extends RecursiveTask<Void> {
     private volatile boolean indexing;
 
     public PageCrawlerTask(PageRepository pageRepository,
-                           LemmaRepository lemmaRepository,
-                           IndexRepository indexRepository,
+                           PageIndexWriter pageIndexWriter,
                            LemmaExtractor lemmaExtractor,
+                           SegmentIndex segmentIndex,
+                           TermDictionary termDictionary,
+                           HotPathMetrics metrics,
+                           CrawlerSettings crawlerSettings,
+                           IndexingCounters indexingCounters,
+                           KnownPages knownPages,
+                           PageFetcher pageFetcher,
+                           CrawlCheckpoint crawlCheckpoint,
+                           CrawlRules crawlRules,
+                           NearDuplicates nearDuplicates,
+                           PageRemover pageRemover,
                            boolean indexing) {
         this.pageRepository = pageRepository;
-        this.lemmaRepository = lemmaRepository;
-        this.indexRepository = indexRepository;
+        this.pageIndexWriter = pageIndexWriter;
         this.lemmaExtractor = lemmaExtractor;
+        this.segmentIndex = segmentIndex;
+        this.termDictionary = termDictionary;
+        this.metrics = metrics;
+        this.crawlerSettings = crawlerSettings;
+        this.indexingCounters = indexingCounters;
+        this.knownPages = knownPages;
+        this.pageFetcher = pageFetcher;
+        this.crawlCheckpoint = crawlCheckpoint;
+        this.crawlRules = crawlRules;
+        this.nearDuplicates = nearDuplicates;
+        this.pageRemover = pageRemover;
         this.indexing = indexing;
     }
 
@@ -67,45 +99,46 @@ public class PageCrawlerTask extends RecursiveTask<Void> {
             return null;
         }
         try {
-            if (!visitedUrls.add(url)) {
+            String path = PagePath.relativize(site.getUrl(), url);
+            if (path == null || !crawlRules.isAllowed(site, url)) {
                 return null;
             }
+            long pathHash = PathHash.of(path);
+            // the start page of a site crawled before is stored already, but is still fetched for its links
+            boolean stored = !claimed && !knownPages.claim(site, pathHash);
 
             delay();
 
-            FetchResult result = fetchDocumentWithRetries(url, 3);
-            if (result == null || result.statusCode >= 400) {
+            PageFetcher.Result result = fetchDocumentWithRetries(url, 3);
+            if (result == null || result.document() == null) {
+                crawlCheckpoint.done(site, pathHash);
                 return null;
             }
 
-            String content = result.document.html();
-            String text = filterCyrillic(result.document.text());
-            int statusCode = result.statusCode;
-
-            Page page = new Page();
-            page.setSite(site);
-            page.setPath(url);
-            page.setCode(statusCode);
-            page.setContent(content);
-            pageRepository.save(page);
-
-            Map<String, Integer> lemmas = lemmaExtractor.extractLemmas(text);
-            lemmaExtractor.saveLemmasAndIndexes(page, lemmas, lemmaRepository, indexRepository);
+            if (!stored) {
+                if (replace) {
+                    pageRepository.findBySiteAndPathHash(site, pathHash).ifPresent(pageRemover::remove);
+                }
+                savePage(path, result);
+            }
 
-            Elements links = result.document.select("a[href]");
+            Elements links = result.document().select("a[href]");
             List<PageCrawlerTask> subTasks = new ArrayList<>();
             for (var link : links) {
                 if (!indexing || Thread.currentThread().isInterrupted()) {
                     return null;
                 }
                 String linkUrl = link.attr("abs:href");
-                if (isValidUrl(linkUrl)) {
-                    PageCrawlerTask task = new PageCrawlerTask(pageRepository, lemmaRepository, indexRepository, lemmaExtractor, indexing);
+                if (claimLink(linkUrl)) {
+                    PageCrawlerTask task = new PageCrawlerTask(pageRepository, pageIndexWriter, lemmaExtractor, segmentIndex, termDictionary, metrics, crawlerSettings, indexingCounters, knownPages, pageFetcher, crawlCheckpoint, crawlRules, nearDuplicates, pageRemover, indexing);
                     task.setUrl(linkUrl);
                     task.setSite(site);
+                    task.setClaimed(true);
                     subTasks.add(task);
                 }
             }
+            // after its links are logged as queued, so a resumed crawl does not lose them
+            crawlCheckpoint.done(site, pathHash);
             invokeAll(subTasks);
         } catch(Exception e){
             e.printStackTrace();
@@ -113,46 +146,103 @@ public class PageCrawlerTask extends RecursiveTask<Void> {
         return null;
     }
 
-    private FetchResult fetchDocumentWithRetries(String url, int maxRetries) throws InterruptedException {
+    private void savePage(String path, PageFetcher.Result result) {
+        Timer.Sample lemmatization = metrics.start();
+        Map<String, Integer> fieldFrequencies = lemmaExtractor.extractFieldFrequencies(result.document());
+        Map<String, Float> ranks = lemmaExtractor.rank(fieldFrequencies);
+        metrics.stop(lemmatization, "crawler.lemmatize");
+
+        Page page = new Page();
+        page.setSite(site);
+        page.setPath(path);
+        page.setCode(result.statusCode());
+        page.setTitle(result.document().title());
+        if (nearDuplicates.isComparable(ranks.size())) {
+            long fingerprint = SimHash.of(ranks);
+            Integer canonical = nearDuplicates.findCanonical(site, fingerprint, ranks.size());
+            if (canonical != null) {
+                // kept as a row so later crawls know the path, but not indexed
+                page.setContent("");
+                page.setCanonicalPageId(canonical);
+                pageRepository.save(page);
+                indexingCounters.pageAdded(site);
+                metrics.increment("indexer.duplicates");
+                return;
+            }
+            page.setFingerprint(fingerprint);
+        }
+        page.setContent(result.document().html());
+        pageRepository.save(page);
+        indexingCounters.pageAdded(site);
+        if (page.getFingerprint() != null) {
+            nearDuplicates.add(site, page.getId(), page.getFingerprint());
+        }
+
+        Timer.Sample flush = metrics.start();
+        pageIndexWriter.saveLemmasAndIndexes(page, fieldFrequencies, ranks);
+        metrics.stop(flush, "indexer.flush");
+        metrics.record("indexer.flush.size", ranks.size());
+        segmentIndex.addPage(page, ranks);
+        termDictionary.addPage(page, ranks);
+    }
+
+    private PageFetcher.Result fetchDocumentWithRetries(String url, int maxRetries) throws InterruptedException {
         int attempt = 0;
         while (attempt < maxRetries) {
+            String host = hostOf(url);
             try {
-                Connection.Response response = Jsoup.connect(url)
-                        .userAgent(USER_AGENT)
-                        .referrer(REFERRER)
-                        .execute();
-                int statusCode = response.statusCode();
-                Document document = response.parse();
-                System.out.println("Status Code: " + statusCode);
-                return new FetchResult(document, statusCode);
-            } catch (SocketTimeoutException e) {
+                PageFetcher.Result result = pageFetcher.fetch(url);
+                logger.debug("Status Code: " + result.statusCode() + ", URL: " + url);
+                if (result.statusCode() >= 400) {
+                    logger.warn("Warning: Skipping URL due to HTTP error: " + result.statusCode() + ", URL: " + url);
+                }
+                return result;
+            } catch (HttpTimeoutException e) {
+                metrics.increment("crawler.fetch.errors", "host", host, "error", "timeout");
                 attempt++;
-                logger.warn("Warning: Read timeout for URL: " + url + ". Retrying " + attempt + "/" + maxRetries);
+                logger.warn("Warning: Timeout for URL: " + url + ". Retrying " + attempt + "/" + maxRetries);
                 delay();
-            } catch (UnsupportedMimeTypeException e) {
-                logger.warn("Warning: Skipping URL due to unhandled content type: " + e.getMimeType());
-            } catch (HttpStatusException e) {
-                logger.warn("Warning: Skipping URL due to HTTP error: " + e.getStatusCode() + ", URL: " + e.getUrl());
             } catch (IOException e) {
-                logger.error("Error fetching URL: " + url,e);
+                metrics.increment("crawler.fetch.errors", "host", host, "error", "io");
+                attempt++;
+                logger.warn("Warning: Error fetching URL: " + url + " (" + e + "). Attempt " + attempt + "/" + maxRetries);
+                delay();
             }
         }
         return null;
     }
 
-    private void delay() throws InterruptedException {
-        Thread.sleep(new Random().nextInt(SLEEP_MAX - SLEEP_MIN + 1) + SLEEP_MIN);
-    }
-
-    private boolean isValidUrl(String url) {
-        return url.startsWith(site.getUrl()) && !url.contains("#")
-                && !url.contains("?") && !pageRepository.existsByPath(url);
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host : "unknown";
+        } catch (IllegalArgumentException e) {
+            return "unknown";
+        }
     }
 
-    private record FetchResult(Document document, int statusCode) {
+    private void delay() throws InterruptedException {
+        int minDelay = crawlerSettings.getMinDelayMs();
+        int maxDelay = Math.max(minDelay, crawlerSettings.getMaxDelayMs());
+        if (maxDelay > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(maxDelay - minDelay + 1) + minDelay);
+        }
+        crawlRules.awaitTurn(site);
     }
 
-    private String filterCyrillic(String input) {
-        return input.replaceAll("[^а-яА-ЯёЁ]", "");
+    private boolean claimLink(String url) {
+        if (url.contains("?")) {
+            return false;
+        }
+        String path = PagePath.relativize(site.getUrl(), url);
+        if (path == null || !crawlRules.isAllowed(site, url)) {
+            return false;
+        }
+        long pathHash = PathHash.of(path);
+        if (!knownPages.claim(site, pathHash)) {
+            return false;
+        }
+        crawlCheckpoint.queued(site, pathHash, url);
+        return true;
     }
 }
\ No newline at end of file
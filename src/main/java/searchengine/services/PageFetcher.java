@@ -0,0 +1,188 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.metrics.HotPathMetrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Fetches pages for the crawler through one shared HttpClient, so connections to a host are kept
+ * alive and reused across its pages, multiplexed over HTTP/2 where the server offers it.
+ * Bodies are requested compressed, read as bytes and handed to Jsoup for parsing only.
+ * Requests in flight per host are bounded by {@code crawler-settings.max-connections-per-host}.
+ */
+@Slf4j
+@Component
+public class PageFetcher {
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/58.0.3029.110 Safari/537.3";
+    private static final String REFERRER = "http://www.google.com";
+
+    private final CrawlerSettings settings;
+    private final HotPathMetrics metrics;
+    private final HttpClient httpClient;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PageFetcher(CrawlerSettings settings, HotPathMetrics metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(settings.getConnectTimeoutMs()))
+                .build();
+    }
+
+    /**
+     * Document is null when the server answered with an error status or content other than HTML.
+     */
+    public record Result(int statusCode, Document document) {
+    }
+
+    /**
+     * Reads the decoded body of a resource that is not a page, such as robots.txt or a sitemap.
+     */
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    /**
+     * Fetches and parses a page. Blocks while the host has the maximum number of requests in flight.
+     * Timeouts surface as {@link java.net.http.HttpTimeoutException}.
+     */
+    public Result fetch(String url) throws IOException, InterruptedException {
+        URI uri = uri(url);
+        String host = hostOf(uri);
+        HttpRequest request = request(uri, "text/html,application/xhtml+xml;q=0.9,*/*;q=0.1");
+
+        Semaphore permits = permits(host);
+        HttpResponse<InputStream> response;
+        byte[] body;
+        permits.acquire();
+        Timer.Sample fetch = metrics.start();
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream in = decode(response)) {
+                body = response.statusCode() < 400 && isHtml(response) ? in.readNBytes(settings.getMaxBodyBytes()) : null;
+            }
+        } finally {
+            permits.release();
+            metrics.stop(fetch, "crawler.fetch", "host", host);
+        }
+        int statusCode = response.statusCode();
+        metrics.increment("crawler.fetch.status", "host", host, "status", String.valueOf(statusCode));
+        if (body == null) {
+            if (statusCode < 400) {
+                log.debug("Skipping {} with content type {}", url, response.headers().firstValue("Content-Type").orElse(""));
+            }
+            return new Result(statusCode, null);
+        }
+
+        Timer.Sample parse = metrics.start();
+        // links resolve against the address the redirects ended at
+        Document document = Jsoup.parse(new ByteArrayInputStream(body), charset(response), response.uri().toString());
+        metrics.stop(parse, "crawler.parse");
+        return new Result(statusCode, document);
+    }
+
+    /**
+     * Streams the body of a resource to the reader while holding the host's permit.
+     * Returns null without calling the reader when the server answers with an error status.
+     */
+    public <T> T fetchResource(String url, BodyReader<T> reader) throws IOException, InterruptedException {
+        URI uri = uri(url);
+        String host = hostOf(uri);
+        Semaphore permits = permits(host);
+        permits.acquire();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request(uri, "*/*"), HttpResponse.BodyHandlers.ofInputStream());
+            metrics.increment("crawler.fetch.status", "host", host, "status", String.valueOf(response.statusCode()));
+            try (InputStream in = decode(response)) {
+                return response.statusCode() < 400 ? reader.read(in) : null;
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private HttpRequest request(URI uri, String accept) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(settings.getRequestTimeoutMs()))
+                .header("User-Agent", USER_AGENT)
+                .header("Referer", REFERRER)
+                .header("Accept", accept)
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET()
+                .build();
+    }
+
+    private Semaphore permits(String host) {
+        return hostPermits.computeIfAbsent(host, key -> new Semaphore(Math.max(1, settings.getMaxConnectionsPerHost())));
+    }
+
+    private static URI uri(String url) throws IOException {
+        try {
+            return new URI(url);
+        } catch (URISyntaxException e) {
+            throw new IOException("Malformed URL: " + url, e);
+        }
+    }
+
+    private static String hostOf(URI uri) {
+        return uri.getHost() != null ? uri.getHost() : "unknown";
+    }
+
+    private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(response.body());
+            case "deflate" -> new InflaterInputStream(response.body());
+            default -> response.body();
+        };
+    }
+
+    private static boolean isHtml(HttpResponse<?> response) {
+        // a missing content type is left to the parser, as browsers do
+        String contentType = response.headers().firstValue("Content-Type").orElse("text/html").toLowerCase(Locale.ROOT);
+        return contentType.startsWith("text/") || contentType.contains("html") || contentType.contains("xml");
+    }
+
+    /**
+     * Charset from the Content-Type header, or null to let Jsoup detect it from the document.
+     */
+    private static String charset(HttpResponse<?> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        int start = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (start < 0) {
+            return null;
+        }
+        String charset = contentType.substring(start + "charset=".length()).split(";", 2)[0].replace("\"", "").trim();
+        try {
+            return Charset.isSupported(charset) ? charset : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
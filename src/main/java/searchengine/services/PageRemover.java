@@ -0,0 +1,77 @@
+package searchengine.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.index.IndexSnapshot;
+import searchengine.index.SegmentIndex;
+import searchengine.index.TermDictionary;
+import searchengine.model.Index;
+import searchengine.model.Lemma;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
+
+import java.util.List;
+
+/**
+ * Removes a stored page with its index rows and its entries in the in-memory indexes,
+ * before the page is indexed again or after a crawl was cut off while storing it.
+ * Its near-duplicates go too: they hold no content of their own, and once gone from the
+ * page table they are fetched again when the next crawl finds them.
+ */
+@Component
+public class PageRemover {
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+    private final SegmentIndex segmentIndex;
+    private final TermDictionary termDictionary;
+    private final IndexSnapshot indexSnapshot;
+    private final NearDuplicates nearDuplicates;
+    private final IndexingCounters indexingCounters;
+
+    @Autowired
+    public PageRemover(PageRepository pageRepository,
+                       LemmaRepository lemmaRepository,
+                       IndexRepository indexRepository,
+                       SegmentIndex segmentIndex,
+                       TermDictionary termDictionary,
+                       IndexSnapshot indexSnapshot,
+                       NearDuplicates nearDuplicates,
+                       IndexingCounters indexingCounters) {
+        this.pageRepository = pageRepository;
+        this.lemmaRepository = lemmaRepository;
+        this.indexRepository = indexRepository;
+        this.segmentIndex = segmentIndex;
+        this.termDictionary = termDictionary;
+        this.indexSnapshot = indexSnapshot;
+        this.nearDuplicates = nearDuplicates;
+        this.indexingCounters = indexingCounters;
+    }
+
+    public void remove(Page page) {
+        Site site = page.getSite();
+        List<Lemma> pageLemmas = indexRepository.findByPage(page).stream()
+                .map(Index::getLemma)
+                .toList();
+        indexSnapshot.invalidate();
+        segmentIndex.deletePage(page);
+        if (page.getFingerprint() != null) {
+            nearDuplicates.remove(site, page.getId(), page.getFingerprint());
+        }
+        termDictionary.removePage(page, pageLemmas.stream().map(Lemma::getLemma).toList());
+        indexRepository.deleteByPage(page);
+        if (!pageLemmas.isEmpty()) {
+            lemmaRepository.decrementFrequency(pageLemmas.stream().map(Lemma::getId).toList());
+            lemmaRepository.deleteUnused(site);
+        }
+        int duplicates = pageRepository.deleteDuplicatesOf(page.getId());
+        pageRepository.delete(page);
+        // a new row with the same (site_id, path_hash) follows, the delete must reach the database first
+        pageRepository.flush();
+        indexingCounters.pageRemoved(site);
+        indexingCounters.pagesRemoved(site, duplicates);
+    }
+}
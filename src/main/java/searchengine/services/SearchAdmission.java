@@ -0,0 +1,87 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import searchengine.config.AdmissionSettings;
+import searchengine.dto.search.SearchResponse;
+import searchengine.metrics.HotPathMetrics;
+import searchengine.search.AdaptiveLimiter;
+import searchengine.search.SearchResultCache;
+
+/**
+ * Admission control in front of {@link SearchService}. Cached responses are returned at once and
+ * never wait; other searches run under an {@link AdaptiveLimiter}, so under a burst some are
+ * rejected quickly instead of all of them queueing for connections and timing out.
+ */
+@Service
+public class SearchAdmission {
+    private final SearchService searchService;
+    private final SearchResultCache cache;
+    private final AdmissionSettings settings;
+    private final HotPathMetrics metrics;
+    private final AdaptiveLimiter limiter;
+
+    @Autowired
+    public SearchAdmission(SearchService searchService,
+                           SearchResultCache cache,
+                           AdmissionSettings settings,
+                           HotPathMetrics metrics,
+                           MeterRegistry registry) {
+        this.searchService = searchService;
+        this.cache = cache;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.limiter = new AdaptiveLimiter(settings.getInitialLimit(), settings.getMinLimit(), settings.getMaxLimit(),
+                settings.getMaxQueued(), settings.getTolerance(), settings.getSmoothing());
+        Gauge.builder("search.admission.limit", limiter, AdaptiveLimiter::getLimit).register(registry);
+        Gauge.builder("search.admission.inflight", limiter, AdaptiveLimiter::getInFlight).register(registry);
+        Gauge.builder("search.admission.queued", limiter, AdaptiveLimiter::getQueued).register(registry);
+    }
+
+    /**
+     * The response, or null when the search was shed.
+     */
+    public SearchResponse search(String query, String site, int offset, int limit, Long timeoutMs) {
+        SearchResultCache.Key key = SearchResultCache.Key.of(query, site, offset, limit);
+        SearchResponse cached = cache.get(key);
+        if (cached != null) {
+            metrics.increment("search.admission", "result", "cached");
+            return cached;
+        }
+        if (!settings.isEnabled()) {
+            return execute(key, query, site, offset, limit, timeoutMs);
+        }
+
+        boolean admitted;
+        try {
+            admitted = limiter.acquire(settings.getMaxQueueWaitMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            metrics.increment("search.admission", "result", "shed");
+            return null;
+        }
+        metrics.increment("search.admission", "result", "accepted");
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            SearchResponse response = execute(key, query, site, offset, limit, timeoutMs);
+            dropped = response.isPartial();
+            return response;
+        } finally {
+            limiter.release(System.nanoTime() - start, dropped);
+        }
+    }
+
+    private SearchResponse execute(SearchResultCache.Key key, String query, String site, int offset, int limit, Long timeoutMs) {
+        SearchResponse response = searchService.search(query, site, offset, limit, timeoutMs);
+        if (!response.isPartial()) {
+            cache.put(key, response);
+        }
+        return response;
+    }
+}
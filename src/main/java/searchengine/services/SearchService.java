@@ -1,182 +1,196 @@
 package searchengine.services;
 
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import searchengine.config.SearchSettings;
 import searchengine.dto.search.SearchResponse;
 import searchengine.dto.search.SearchResult;
-import searchengine.model.Lemma;
+import searchengine.index.TermDictionary;
+import searchengine.metrics.HotPathMetrics;
 import searchengine.model.Page;
-import searchengine.model.Site;
-import searchengine.model.Index;
-import searchengine.repositories.IndexRepository;
-import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.PageRepository;
-import searchengine.repositories.SiteRepository;
-
+import searchengine.repositories.RoutingDataSource;
+import searchengine.search.Deadline;
+import searchengine.search.ScoredPage;
+import searchengine.search.ShardRequest;
+import searchengine.search.ShardResult;
+import searchengine.search.ShardRouter;
+import searchengine.utils.PagePath;
+import searchengine.utils.SnippetGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.Comparator;
 
 @Service
 public class SearchService {
-    @Autowired
-    private final SiteRepository siteRepository;
     @Autowired
     private final PageRepository pageRepository;
     @Autowired
-    private final LemmaRepository lemmaRepository;
-    @Autowired
     private final LemmaExtractor lemmaExtractor;
-    @Autowired
-    private final IndexRepository indexRepository;
-
-    private static final double MAX_LEMMA_FREQUENCY_PERCENT = 0.1;
+    private final TermDictionary termDictionary;
+    private final ShardRouter shardRouter;
+    private final SearchSettings searchSettings;
+    private final HotPathMetrics metrics;
+    private final SnippetGenerator snippetGenerator;
+    private final SpellingCorrector spellingCorrector;
 
     @Autowired
-    public SearchService(SiteRepository siteRepository,
-                         PageRepository pageRepository,
-                         LemmaRepository lemmaRepository,
+    public SearchService(PageRepository pageRepository,
                          LemmaExtractor lemmaExtractor,
-                         IndexRepository indexRepository) {
-        this.siteRepository = siteRepository;
+                         TermDictionary termDictionary,
+                         ShardRouter shardRouter,
+                         SearchSettings searchSettings,
+                         HotPathMetrics metrics,
+                         SnippetGenerator snippetGenerator,
+                         SpellingCorrector spellingCorrector) {
         this.pageRepository = pageRepository;
         this.lemmaExtractor = lemmaExtractor;
-        this.lemmaRepository = lemmaRepository;
-        this.indexRepository = indexRepository;
+        this.termDictionary = termDictionary;
+        this.shardRouter = shardRouter;
+        this.searchSettings = searchSettings;
+        this.metrics = metrics;
+        this.snippetGenerator = snippetGenerator;
+        this.spellingCorrector = spellingCorrector;
+    }
+
+    public SearchResponse search(String query, String site, int offset, int limit, Long timeoutMs) {
+        return RoutingDataSource.search(() -> execute(query, site, offset, limit, timeoutMs));
     }
 
-    public SearchResponse search(String query, String site, int offset, int limit) {
+    private SearchResponse execute(String query, String site, int offset, int limit, Long timeoutMs) {
+        Deadline deadline = Deadline.after(timeoutMs != null ? timeoutMs : searchSettings.getTimeBudgetMs());
+        Timer.Sample lemmatization = metrics.start();
         List<String> lemmas = lemmaExtractor.getLemmaSet(query)
                 .stream()
+                .sorted(Comparator.comparingInt(termDictionary::docFreq))
                 .toList();
-        if (lemmas.isEmpty()) {
-            return null;
-        }
-
-        List<String> filteredLemmas = filterFrequentLemmas(lemmas);
-
-        if (filteredLemmas.isEmpty()) {
-            return null;
+        metrics.stop(lemmatization, "search.stage", "stage", "lemmatize");
+
+        ShardResult shardResult = lemmas.isEmpty() ? ShardResult.EMPTY
+                : shardRouter.route(new ShardRequest(site, lemmas, offset + limit, deadline.remainingMillis()));
+        if (shardResult.totalHits() == 0 && !shardResult.partial() && !deadline.isExpired()) {
+            Timer.Sample spelling = metrics.start();
+            List<SpellingCorrector.Variant> variants = spellingCorrector.variants(query);
+            metrics.stop(spelling, "search.stage", "stage", "spelling");
+            if (!variants.isEmpty()) {
+                metrics.increment("search.spelling.corrected");
+                shardResult = searchVariants(site, variants, offset + limit, deadline);
+                Set<String> corrected = new LinkedHashSet<>();
+                variants.forEach(variant -> corrected.addAll(variant.lemmas()));
+                lemmas = List.copyOf(corrected);
+            }
         }
-        List<Page> pages = findPagesByLemmas(filteredLemmas, site, offset, limit);
-
-        if (pages.isEmpty()) {
-            SearchResponse response = new SearchResponse();
-            response.setResult(true);
-            response.setCount(0);
-            response.setData(List.of());
-            return response;
+        List<ScoredPage> hits = shardResult.hits();
+        double maxAbsoluteRelevance = hits.isEmpty() ? 1.0 : hits.get(0).score();
+        Timer.Sample snippets = metrics.start();
+        List<ScoredPage> window = hydrate(hits.subList(Math.min(offset, hits.size()), hits.size()), lemmas);
+        metrics.stop(snippets, "search.stage", "stage", "snippet");
+
+        List<SearchResult> results = new ArrayList<>();
+        for (ScoredPage hit : window) {
+            SearchResult result = hit.result();
+            result.setRelevance((float) (hit.score() / maxAbsoluteRelevance));
+            results.add(result);
         }
 
-        double maxAbsoluteRelevance = pages.stream()
-                .mapToDouble(page -> calculateAbsoluteRelevance(page, filteredLemmas))
-                .max()
-                .orElse(1.0);
-
-        List<SearchResult> results = pages.stream().map(page -> {
-                    SearchResult result = new SearchResult();
-                    result.setSite(page.getSite().getUrl());
-                    result.setSiteName(page.getSite().getName());
-                    result.setUri(page.getPath());
-                    result.setTitle(extractTitle(page.getContent()));
-                    result.setSnippet(generateSnippet(page.getContent(), filteredLemmas));
-                    double absoluteRelevance = calculateAbsoluteRelevance(page, filteredLemmas);
-                    result.setRelevance((float) (absoluteRelevance / maxAbsoluteRelevance));
-                    return result;
-                }).sorted(Comparator.comparing(SearchResult::getRelevance).reversed())
-                .collect(Collectors.toList());
-
         SearchResponse response = new SearchResponse();
         response.setResult(true);
-        response.setCount(results.size());
+        response.setCount(shardResult.totalHits());
+        response.setPartial(shardResult.partial());
+        if (shardResult.partial()) {
+            metrics.increment("search.partial");
+        }
         response.setData(results);
         return response;
     }
 
-    private double calculateAbsoluteRelevance(Page page, List<String> lemmas) {
-        return lemmas.stream()
-                .mapToDouble(lemma -> indexRepository.findByPageAndLemma(page, lemmaRepository.findAllByLemma(lemma).get(0))
-                        .stream()
-                        .mapToDouble(Index::getRank)
-                        .sum())
-                .sum();
-    }
-
-    private List<Page> findPagesByLemmas(List<String> lemmas, String site, int offset, int limit) {
-        List<Page> pages;
-        Pageable pageable = PageRequest.of(offset / limit, limit);
-        if (site != null) {
-            Site siteEntity = siteRepository.findByUrl(site).orElse(null);
-            if (siteEntity == null) {
-                return List.of();
-            }
-            pages = pageRepository.findBySiteAndLemmas(siteEntity, List.of(lemmas.get(0)), pageable);
-        } else {
-            pages = pageRepository.findByLemmas(List.of(lemmas.get(0)), pageable);
-
-        }
-
-        for (int i = 1; i < lemmas.size(); i++) {
-            String lemma = lemmas.get(i);
-            pages = pages.stream()
-                    .filter(page -> page.getContent().contains(lemma))
-                    .collect(Collectors.toList());
-            if (pages.isEmpty()) {
+    /**
+     * Runs each corrected query and merges the hits with their scores scaled by the variant
+     * penalty; a page matched by several variants keeps its best score. Variants overlap, so the
+     * hit count is that of the variant matching most pages, or the merged hits if there are more.
+     */
+    private ShardResult searchVariants(String site, List<SpellingCorrector.Variant> variants, int topK, Deadline deadline) {
+        Map<Object, ScoredPage> best = new HashMap<>();
+        int totalHits = 0;
+        boolean partial = false;
+        for (SpellingCorrector.Variant variant : variants) {
+            if (deadline.isExpired()) {
+                partial = true;
                 break;
             }
+            ShardResult result = shardRouter.route(new ShardRequest(site, variant.lemmas(), topK, deadline.remainingMillis()));
+            totalHits = Math.max(totalHits, result.totalHits());
+            partial |= result.partial();
+            for (ScoredPage hit : result.hits()) {
+                ScoredPage penalized = new ScoredPage(hit.pageId(), hit.siteId(), hit.score() * variant.penalty(), hit.result());
+                best.merge(hitKey(hit), penalized, (a, b) -> a.score() >= b.score() ? a : b);
+            }
         }
-        return pages;
+        List<ScoredPage> hits = new ArrayList<>(best.values());
+        hits.sort(ScoredPage.BY_SCORE_DESC);
+        return new ShardResult(List.copyOf(hits.subList(0, Math.min(topK, hits.size()))),
+                Math.max(totalHits, hits.size()), partial);
     }
 
-    private List<String> filterFrequentLemmas(List<String> lemmas) {
-        return lemmas.stream()
-                .sorted(Comparator.comparingInt(lemma ->
-                        lemmaRepository.findAllByLemma(lemma)
-                                .stream()
-                                .mapToInt(Lemma::getFrequency)
-                                .sum()
-                ))
-                .collect(Collectors.toList());
+    // remote hits carry page ids of another database, they are told apart by address
+    private static Object hitKey(ScoredPage hit) {
+        return hit.result() == null
+                ? (long) hit.siteId() << 32 | hit.pageId()
+                : hit.result().getSite() + hit.result().getUri();
     }
 
-    private String extractTitle(String content) {
-        int titleStart = content.indexOf("<title>") + 7;
-        int titleEnd = content.indexOf("</title>");
-        if (titleStart != -1 && titleEnd != -1) {
-            return content.substring(titleStart, titleEnd);
-        }
-        return "Без заголовка";
+    public ShardResult searchShard(ShardRequest request) {
+        return RoutingDataSource.search(() -> {
+            ShardResult shardResult = shardRouter.searchLocal(request);
+            return new ShardResult(hydrate(shardResult.hits(), request.lemmas()),
+                    shardResult.totalHits(), shardResult.partial());
+        });
     }
 
-    private String generateSnippet(String content, List<String> lemmas) {
-        String lowerContent = content.toLowerCase();
-        int snippetLength = 300;
-        int start = Integer.MAX_VALUE;
-        int end = 0;
-
-        for (String lemma : lemmas) {
-            int index = lowerContent.indexOf(lemma.toLowerCase());
-            if (index != -1) {
-                start = Math.min(start, index);
-                end = Math.max(end, index + lemma.length());
+    private List<ScoredPage> hydrate(List<ScoredPage> hits, List<String> lemmas) {
+        Map<Integer, Page> pages = pageRepository.findAllById(hits.stream()
+                        .filter(hit -> hit.result() == null)
+                        .map(ScoredPage::pageId)
+                        .toList())
+                .stream()
+                .collect(Collectors.toMap(Page::getId, Function.identity()));
+        List<ScoredPage> hydrated = new ArrayList<>();
+        for (ScoredPage hit : hits) {
+            if (hit.result() != null) {
+                hydrated.add(hit);
+            } else {
+                Page page = pages.get(hit.pageId());
+                if (page != null) {
+                    hydrated.add(hit.withResult(toSearchResult(page, lemmas, (float) hit.score())));
+                }
             }
         }
+        return hydrated;
+    }
 
-        if (start == Integer.MAX_VALUE) {
-            return content.substring(0, Math.min( snippetLength, content.length()));
-        }
-
-        start = Math.max(0, start - snippetLength / 2);
-        end = Math.min(content.length(), end + snippetLength / 2);
-
-        String snippet = content.substring(start, end);
+    private SearchResult toSearchResult(Page page, List<String> lemmas, float relevance) {
+        SearchResult result = new SearchResult();
+        result.setSite(PagePath.siteRoot(page.getSite().getUrl()));
+        result.setSiteName(page.getSite().getName());
+        result.setUri(page.getPath());
+        result.setTitle(title(page));
+        result.setSnippet(snippetGenerator.generateSnippet(page.getContent(), lemmas));
+        result.setRelevance(relevance);
+        return result;
+    }
 
-        for (String lemma : lemmas) {
-            snippet = snippet.replaceAll("(?i)" + lemma, "<b>" + lemma + "</b>");
+    private String title(Page page) {
+        if (page.getTitle() == null) {
+            return snippetGenerator.extractTitle(page.getContent());
         }
-
-        return snippet;
+        return page.getTitle().isBlank() ? SnippetGenerator.NO_TITLE : page.getTitle();
     }
-}
\ No newline at end of file
+}
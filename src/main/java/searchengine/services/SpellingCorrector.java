@@ -0,0 +1,191 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import searchengine.config.SpellingSettings;
+import searchengine.index.SpellingIndex;
+import searchengine.index.TermDictionary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Corrects query words that are not in the lemma dictionary for searches that found nothing.
+ * Each such word is replaced with the closest dictionary lemmas found in a {@link SpellingIndex}
+ * over all sites, which is rebuilt in the background after indexing, like the suggestions.
+ */
+@Slf4j
+@Service
+@DependsOn("indexSnapshot")
+public class SpellingCorrector {
+    private final SpellingSettings settings;
+    private final LemmaExtractor lemmaExtractor;
+    private final TermDictionary termDictionary;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "spelling-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private volatile SpellingIndex index = SpellingIndex.EMPTY;
+
+    /**
+     * Lemmas of a corrected query, rarest first, and the factor applied to its scores.
+     */
+    public record Variant(List<String> lemmas, double penalty) {
+    }
+
+    private record Option(List<String> lemmas, int distance) {
+    }
+
+    private record Partial(List<List<String>> lemmas, int distance) {
+    }
+
+    @Autowired
+    public SpellingCorrector(SpellingSettings settings, LemmaExtractor lemmaExtractor, TermDictionary termDictionary) {
+        this.settings = settings;
+        this.lemmaExtractor = lemmaExtractor;
+        this.termDictionary = termDictionary;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (settings.isEnabled()) {
+            rebuild();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    public void scheduleRebuild() {
+        if (settings.isEnabled() && rebuildQueued.compareAndSet(false, true)) {
+            rebuildExecutor.submit(() -> {
+                rebuildQueued.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.error("Failed to rebuild the spelling index", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Up to maxVariants corrected forms of the query, least edited first. Words found in the
+     * dictionary keep their lemmas, the others are replaced with one of their closest lemmas.
+     * Empty when nothing needs correcting or some word has no close lemma.
+     */
+    public List<Variant> variants(String query) {
+        if (!settings.isEnabled()) {
+            return List.of();
+        }
+        List<List<Option>> words = new ArrayList<>();
+        boolean corrected = false;
+        for (String word : words(query)) {
+            Set<String> lemmas = lemmaExtractor.getLemmaSet(word);
+            if (lemmas.isEmpty()) {
+                // function words are not indexed, the search ignores them as well
+                continue;
+            }
+            List<String> known = lemmas.stream().filter(lemma -> termDictionary.docFreq(lemma) > 0).toList();
+            if (!known.isEmpty()) {
+                words.add(List.of(new Option(known, 0)));
+                continue;
+            }
+            List<Option> options = corrections(word, lemmas);
+            if (options.isEmpty()) {
+                return List.of();
+            }
+            words.add(options);
+            corrected = true;
+        }
+        if (!corrected) {
+            return List.of();
+        }
+
+        // beam over the words: the best variants of the whole query extend the best of its beginning
+        List<Partial> beam = List.of(new Partial(List.of(), 0));
+        for (List<Option> options : words) {
+            List<Partial> next = new ArrayList<>();
+            for (Partial partial : beam) {
+                for (Option option : options) {
+                    List<List<String>> lemmas = new ArrayList<>(partial.lemmas());
+                    lemmas.add(option.lemmas());
+                    next.add(new Partial(lemmas, partial.distance() + option.distance()));
+                }
+            }
+            next.sort(Comparator.comparingInt(Partial::distance));
+            beam = next.subList(0, Math.min(next.size(), settings.getMaxVariants()));
+        }
+
+        List<Variant> variants = new ArrayList<>();
+        for (Partial partial : beam) {
+            Set<String> lemmas = new LinkedHashSet<>();
+            partial.lemmas().forEach(lemmas::addAll);
+            variants.add(new Variant(
+                    lemmas.stream().sorted(Comparator.comparingInt(termDictionary::docFreq)).toList(),
+                    Math.pow(settings.getEditPenalty(), partial.distance())));
+        }
+        return variants;
+    }
+
+    /**
+     * Closest dictionary lemmas to the word as typed or to any lemma the morphology guessed for it.
+     */
+    private List<Option> corrections(String word, Set<String> lemmas) {
+        int distance = word.length() < settings.getMinWordLength() ? 1 : settings.getMaxDistance();
+        SpellingIndex current = index;
+        Map<String, Integer> closest = new HashMap<>();
+        Map<String, Integer> weights = new HashMap<>();
+        Set<String> forms = new LinkedHashSet<>(lemmas);
+        forms.add(word);
+        for (String form : forms) {
+            for (SpellingIndex.Candidate candidate : current.lookup(form, distance, settings.getMaxCandidates())) {
+                closest.merge(candidate.term(), candidate.distance(), Math::min);
+                weights.put(candidate.term(), candidate.weight());
+            }
+        }
+        return closest.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue()
+                        .thenComparing(entry -> -weights.get(entry.getKey())))
+                .limit(settings.getMaxCandidates())
+                .map(entry -> new Option(List.of(entry.getKey()), entry.getValue()))
+                .toList();
+    }
+
+    private static List<String> words(String query) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : query.toLowerCase(Locale.ROOT).replace('ё', 'е').split("[^\\p{L}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return List.copyOf(words);
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<String, Integer> all = new HashMap<>();
+        for (Integer siteId : termDictionary.siteIds()) {
+            termDictionary.lemmas(siteId).forEach((lemma, docFreq) -> all.merge(lemma, docFreq, Integer::sum));
+        }
+        index = SpellingIndex.build(all, settings.getMaxDistance(), settings.getPrefixLength());
+        log.debug("Rebuilt the spelling index over {} lemmas in {} ms", index.size(), System.currentTimeMillis() - start);
+    }
+}
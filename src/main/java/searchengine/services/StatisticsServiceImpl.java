@@ -6,10 +6,9 @@ import searchengine.dto.statistics.DetailedStatisticsItem;
 import searchengine.dto.statistics.StatisticsData;
 import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.dto.statistics.TotalStatistics;
+import searchengine.index.TermDictionary;
 import searchengine.model.Site;
 import searchengine.model.Status;
-import searchengine.repositories.LemmaRepository;
-import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
 
 import java.time.ZoneOffset;
@@ -21,8 +20,8 @@ import java.util.List;
 public class StatisticsServiceImpl implements StatisticsService {
 
     private final SiteRepository siteRepository;
-    private final PageRepository pageRepository;
-    private final LemmaRepository lemmaRepository;
+    private final IndexingCounters indexingCounters;
+    private final TermDictionary termDictionary;
 
     @Override
     public StatisticsResponse getStatistics() {
@@ -32,14 +31,17 @@ public class StatisticsServiceImpl implements StatisticsService {
 
         int totalPages = 0;
         int totalLemmas = 0;
+        double totalRate = 0;
         boolean isIndexing = false;
 
         for (Site site : sites) {
-            int pages = pageRepository.countBySite(site);
-            int lemmas = lemmaRepository.countBySite(site);
+            int pages = (int) indexingCounters.pages(site);
+            int lemmas = termDictionary.lemmas(site.getId()).size();
+            double rate = indexingCounters.pagesPerSecond(site);
 
             totalPages += pages;
             totalLemmas += lemmas;
+            totalRate += rate;
             if (site.getStatus() == Status.INDEXING) {
                 isIndexing = true;
             }
@@ -50,6 +52,7 @@ public class StatisticsServiceImpl implements StatisticsService {
             item.setStatusTime(site.getStatusTime().toEpochSecond(ZoneOffset.UTC));
             item.setPages(pages);
             item.setLemmas(lemmas);
+            item.setPagesPerSecond(rate);
 
             if (site.getStatus() == Status.FAILED) {
                 item.setError(site.getLastError());
@@ -61,6 +64,7 @@ public class StatisticsServiceImpl implements StatisticsService {
         total.setPages(totalPages);
         total.setLemmas(totalLemmas);
         total.setIndexing(isIndexing);
+        total.setPagesPerSecond(totalRate);
 
         StatisticsData statisticsData = new StatisticsData();
         statisticsData.setTotal(total);
@@ -0,0 +1,131 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import searchengine.index.SuggestionIndex;
+import searchengine.index.TermDictionary;
+import searchengine.metrics.HotPathMetrics;
+import searchengine.model.Site;
+import searchengine.repositories.SiteRepository;
+import searchengine.utils.PagePath;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Query completion from the lemma dictionary, weighted by document frequency. Suggestions are
+ * served from immutable in-memory indexes, one over all sites and one per site, that are swapped
+ * in after each rebuild. Indexing queues a rebuild of the sites it changed, other sites keep their index.
+ */
+@Slf4j
+@Service
+@DependsOn("indexSnapshot")
+public class SuggestService {
+    private final TermDictionary termDictionary;
+    private final SiteRepository siteRepository;
+    private final HotPathMetrics metrics;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "suggest-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final Set<Integer> changedSites = ConcurrentHashMap.newKeySet();
+    private volatile Indexes indexes = new Indexes(SuggestionIndex.EMPTY, Map.of(), Map.of());
+
+    private record Indexes(SuggestionIndex all, Map<Integer, SuggestionIndex> bySite, Map<String, Integer> siteIds) {
+    }
+
+    @Autowired
+    public SuggestService(TermDictionary termDictionary,
+                          SiteRepository siteRepository,
+                          HotPathMetrics metrics) {
+        this.termDictionary = termDictionary;
+        this.siteRepository = siteRepository;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void load() {
+        rebuild();
+    }
+
+    @PreDestroy
+    public void close() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Completions of the last word of the query, each with the preceding words kept, for the
+     * given site url or all sites when null.
+     */
+    public List<String> suggest(String query, String site, int limit) {
+        String normalized = query.toLowerCase(Locale.ROOT).replace('ё', 'е').stripLeading();
+        int lastSpace = normalized.lastIndexOf(' ');
+        String head = normalized.substring(0, lastSpace + 1);
+        String prefix = normalized.substring(lastSpace + 1);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        Indexes current = indexes;
+        SuggestionIndex index = current.all();
+        if (site != null) {
+            Integer siteId = current.siteIds().get(PagePath.siteRoot(site));
+            index = siteId == null ? SuggestionIndex.EMPTY : current.bySite().getOrDefault(siteId, SuggestionIndex.EMPTY);
+        }
+        metrics.increment("suggest.requests");
+        return index.complete(prefix, limit).stream()
+                .map(suggestion -> head + suggestion.term())
+                .toList();
+    }
+
+    /**
+     * Queues a rebuild for a site whose dictionary changed; requests arriving while one is queued are folded into it.
+     */
+    public void scheduleRebuild(Site site) {
+        changedSites.add(site.getId());
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuildExecutor.submit(() -> {
+                rebuildQueued.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.error("Failed to rebuild suggestions", e);
+                }
+            });
+        }
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        Indexes previous = indexes;
+        Map<Integer, SuggestionIndex> bySite = new HashMap<>();
+        Map<String, Integer> all = new HashMap<>();
+        for (Integer siteId : termDictionary.siteIds()) {
+            Map<String, Integer> lemmas = Map.copyOf(termDictionary.lemmas(siteId));
+            SuggestionIndex siteIndex = previous.bySite().get(siteId);
+            if (siteIndex == null || changedSites.remove(siteId)) {
+                siteIndex = SuggestionIndex.build(lemmas);
+            }
+            bySite.put(siteId, siteIndex);
+            lemmas.forEach((lemma, docFreq) -> all.merge(lemma, docFreq, Integer::sum));
+        }
+        Map<String, Integer> siteIds = new HashMap<>();
+        for (Site site : siteRepository.findAll()) {
+            siteIds.put(PagePath.siteRoot(site.getUrl()), site.getId());
+        }
+        indexes = new Indexes(SuggestionIndex.build(all), bySite, siteIds);
+        log.debug("Rebuilt suggestions over {} lemmas in {} ms", all.size(), System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,81 @@
+package searchengine.services;
+
+import java.util.Map;
+import java.util.function.BinaryOperator;
+
+/**
+ * Splits streamed text into lower-cased Russian and English word forms and counts them,
+ * each occurrence merging the current value into the form's count. Text can be fed in pieces; a word continues
+ * across pieces until {@link #breakWord()} or a non-letter.
+ * Normalization: "ё" is folded to "е", stress marks, soft hyphens and zero-width characters
+ * inside a word are dropped, any other character that is not a Russian or English letter
+ * ends the word, as does a change of script.
+ */
+final class WordSplitter {
+    private static final int NONE = 0;
+    private static final int CYRILLIC = 1;
+    private static final int LATIN = 2;
+    private static final int MAX_WORD_LENGTH = 40;
+
+    private final Map<String, Integer> russianForms;
+    private final Map<String, Integer> englishForms;
+    private final char[] word = new char[MAX_WORD_LENGTH];
+    private int length;
+    private int wordScript = NONE;
+    private boolean tooLong;
+    private final BinaryOperator<Integer> merge;
+    private int occurrence = 1;
+
+    WordSplitter(Map<String, Integer> russianForms, Map<String, Integer> englishForms) {
+        this(russianForms, englishForms, Integer::sum);
+    }
+
+    WordSplitter(Map<String, Integer> russianForms, Map<String, Integer> englishForms, BinaryOperator<Integer> merge) {
+        this.russianForms = russianForms;
+        this.englishForms = englishForms;
+        this.merge = merge;
+    }
+
+    void setOccurrence(int occurrence) {
+        breakWord();
+        this.occurrence = occurrence;
+    }
+
+    void feed(CharSequence text) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (isIgnorable(c)) {
+                continue;
+            }
+            c = Character.toLowerCase(c);
+            if (c == 'ё') {
+                c = 'е';
+            }
+            int script = (c >= 'а' && c <= 'я') ? CYRILLIC : (c >= 'a' && c <= 'z') ? LATIN : NONE;
+            if (script != wordScript) {
+                breakWord();
+                wordScript = script;
+            }
+            if (script != NONE) {
+                if (length == MAX_WORD_LENGTH) {
+                    tooLong = true;
+                } else {
+                    word[length++] = c;
+                }
+            }
+        }
+    }
+
+    void breakWord() {
+        if (length > 0 && !tooLong) {
+            (wordScript == CYRILLIC ? russianForms : englishForms).merge(new String(word, 0, length), occurrence, merge);
+        }
+        length = 0;
+        tooLong = false;
+        wordScript = NONE;
+    }
+
+    private static boolean isIgnorable(char c) {
+        return c == '\u0301' || c == '\u00AD' || (c >= '\u200B' && c <= '\u200D') || c == '\uFEFF';
+    }
+}
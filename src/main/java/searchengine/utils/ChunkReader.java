@@ -0,0 +1,106 @@
+package searchengine.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Reads what {@link ChunkWriter} wrote, one chunk in memory at a time.
+ */
+public final class ChunkReader {
+    // a single row may exceed the chunk size, but not by this much
+    private static final int MAX_CHUNK_BYTES = 64 << 20;
+
+    private final DataInputStream in;
+    private DataInputStream chunk;
+    private int remainingRows;
+
+    public ChunkReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    public void readHeader(int magic, int version) throws IOException {
+        if (in.readInt() != magic || in.readInt() != version) {
+            throw new IOException("Unsupported archive version");
+        }
+    }
+
+    public int nextSection() throws IOException {
+        return in.readUnsignedByte();
+    }
+
+    /**
+     * Moves to the next row of the section; false at the end of the section.
+     */
+    public boolean nextRow() throws IOException {
+        if (remainingRows == 0) {
+            int rows = in.readInt();
+            if (rows == 0) {
+                return false;
+            }
+            int length = in.readInt();
+            if (rows < 0 || length < 0 || length > MAX_CHUNK_BYTES) {
+                throw new IOException("Corrupt chunk header");
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            if (crc.getValue() != in.readLong()) {
+                throw new IOException("Chunk checksum mismatch");
+            }
+            chunk = new DataInputStream(new ByteArrayInputStream(bytes));
+            remainingRows = rows;
+        }
+        remainingRows--;
+        return true;
+    }
+
+    public long readLong() throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 63) {
+                throw new IOException("Malformed varint");
+            }
+            int b = chunk.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    public int readInt() throws IOException {
+        return Math.toIntExact(readLong());
+    }
+
+    public float readFloat() throws IOException {
+        return chunk.readFloat();
+    }
+
+    public Long readNullableLong() throws IOException {
+        return chunk.readBoolean() ? readLong() : null;
+    }
+
+    public Integer readNullableInt() throws IOException {
+        Long value = readNullableLong();
+        return value == null ? null : Math.toIntExact(value);
+    }
+
+    public String readString() throws IOException {
+        long length = readLong();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_CHUNK_BYTES) {
+            throw new IOException("Malformed string length");
+        }
+        byte[] bytes = new byte[(int) length];
+        chunk.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,99 @@
+package searchengine.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes rows into sections of CRC-checked chunks: a section tag, then chunks of
+ * (row count, byte length, rows, CRC32), closed by a zero row count. Rows are buffered until
+ * the chunk reaches about CHUNK_BYTES, so memory stays bounded however long a section is.
+ * Numbers are zigzag varints, nullable values carry a presence marker.
+ */
+public final class ChunkWriter {
+    static final int CHUNK_BYTES = 1 << 20;
+
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(CHUNK_BYTES + (CHUNK_BYTES >> 3));
+    private final CRC32 crc = new CRC32();
+    private final DataOutputStream chunk = new DataOutputStream(new CheckedOutputStream(buffer, crc));
+    private int rows;
+
+    public ChunkWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    public void writeHeader(int magic, int version) throws IOException {
+        out.writeInt(magic);
+        out.writeInt(version);
+    }
+
+    public void beginSection(int tag) throws IOException {
+        out.writeByte(tag);
+    }
+
+    public void endRow() throws IOException {
+        rows++;
+        if (buffer.size() >= CHUNK_BYTES) {
+            flushChunk();
+        }
+    }
+
+    public void endSection() throws IOException {
+        flushChunk();
+        out.writeInt(0);
+    }
+
+    public void finish(int endTag) throws IOException {
+        out.writeByte(endTag);
+        out.flush();
+    }
+
+    public void writeLong(long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            chunk.writeByte((int) (zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        chunk.writeByte((int) zigzag);
+    }
+
+    public void writeFloat(float value) throws IOException {
+        chunk.writeFloat(value);
+    }
+
+    public void writeNullableLong(Long value) throws IOException {
+        chunk.writeBoolean(value != null);
+        if (value != null) {
+            writeLong(value);
+        }
+    }
+
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeLong(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLong(bytes.length);
+        chunk.write(bytes);
+    }
+
+    private void flushChunk() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        chunk.flush();
+        out.writeInt(rows);
+        out.writeInt(buffer.size());
+        buffer.writeTo(out);
+        out.writeLong(crc.getValue());
+        buffer.reset();
+        crc.reset();
+        rows = 0;
+    }
+}
@@ -0,0 +1,83 @@
+package searchengine.utils;
+
+/**
+ * Set of primitive longs with open addressing and linear probing. Not thread-safe.
+ */
+public final class LongHashSet {
+    private static final long EMPTY = 0L;
+
+    private long[] slots;
+    private int size;
+    private boolean containsEmpty;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        slots = new long[capacity];
+    }
+
+    public int size() {
+        return size + (containsEmpty ? 1 : 0);
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == value) {
+                return true;
+            }
+            if (slot == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the value was not present.
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            boolean added = !containsEmpty;
+            containsEmpty = true;
+            return added;
+        }
+        if ((size + 1) * 2 > slots.length) {
+            rehash(slots.length << 1);
+        }
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == value) {
+                return false;
+            }
+            if (slot == EMPTY) {
+                slots[i] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int i = mix(value) & mask;
+                while (slots[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = value;
+            }
+        }
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
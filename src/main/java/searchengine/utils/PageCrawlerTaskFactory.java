@@ -2,33 +2,73 @@ package searchengine.utils;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.index.SegmentIndex;
+import searchengine.index.TermDictionary;
+import searchengine.metrics.HotPathMetrics;
 import searchengine.model.Site;
-import searchengine.repositories.IndexRepository;
-import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageIndexWriter;
 import searchengine.repositories.PageRepository;
+import searchengine.services.CrawlCheckpoint;
+import searchengine.services.CrawlRules;
+import searchengine.services.IndexingCounters;
+import searchengine.services.KnownPages;
 import searchengine.services.LemmaExtractor;
+import searchengine.services.NearDuplicates;
 import searchengine.services.PageCrawlerTask;
+import searchengine.services.PageFetcher;
+import searchengine.services.PageRemover;
 
 @Component
 public class PageCrawlerTaskFactory {
     private final PageRepository pageRepository;
-    private final LemmaRepository lemmaRepository;
-    private final IndexRepository indexRepository;
+    private final PageIndexWriter pageIndexWriter;
     private final LemmaExtractor lemmaExtractor;
+    private final SegmentIndex segmentIndex;
+    private final TermDictionary termDictionary;
+    private final HotPathMetrics metrics;
+    private final CrawlerSettings crawlerSettings;
+    private final IndexingCounters indexingCounters;
+    private final KnownPages knownPages;
+    private final PageFetcher pageFetcher;
+    private final CrawlCheckpoint crawlCheckpoint;
+    private final CrawlRules crawlRules;
+    private final NearDuplicates nearDuplicates;
+    private final PageRemover pageRemover;
 
     @Autowired
     public PageCrawlerTaskFactory(PageRepository pageRepository,
-                                  LemmaRepository lemmaRepository,
-                                  IndexRepository indexRepository,
-                                  LemmaExtractor lemmaExtractor) {
+                                  PageIndexWriter pageIndexWriter,
+                                  LemmaExtractor lemmaExtractor,
+                                  SegmentIndex segmentIndex,
+                                  TermDictionary termDictionary,
+                                  HotPathMetrics metrics,
+                                  CrawlerSettings crawlerSettings,
+                                  IndexingCounters indexingCounters,
+                                  KnownPages knownPages,
+                                  PageFetcher pageFetcher,
+                                  CrawlCheckpoint crawlCheckpoint,
+                                  CrawlRules crawlRules,
+                                  NearDuplicates nearDuplicates,
+                                  PageRemover pageRemover) {
         this.pageRepository = pageRepository;
-        this.lemmaRepository = lemmaRepository;
-        this.indexRepository = indexRepository;
+        this.pageIndexWriter = pageIndexWriter;
         this.lemmaExtractor = lemmaExtractor;
+        this.segmentIndex = segmentIndex;
+        this.termDictionary = termDictionary;
+        this.metrics = metrics;
+        this.crawlerSettings = crawlerSettings;
+        this.indexingCounters = indexingCounters;
+        this.knownPages = knownPages;
+        this.pageFetcher = pageFetcher;
+        this.crawlCheckpoint = crawlCheckpoint;
+        this.crawlRules = crawlRules;
+        this.nearDuplicates = nearDuplicates;
+        this.pageRemover = pageRemover;
     }
 
     public PageCrawlerTask create(String url, Site site, boolean indexing) {
-        PageCrawlerTask task = new PageCrawlerTask(pageRepository, lemmaRepository, indexRepository, lemmaExtractor, indexing);
+        PageCrawlerTask task = new PageCrawlerTask(pageRepository, pageIndexWriter, lemmaExtractor, segmentIndex, termDictionary, metrics, crawlerSettings, indexingCounters, knownPages, pageFetcher, crawlCheckpoint, crawlRules, nearDuplicates, pageRemover, indexing);
         task.setUrl(url);
         task.setSite(site);
         return task;
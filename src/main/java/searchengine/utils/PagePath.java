@@ -0,0 +1,128 @@
+package searchengine.utils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Normalized path of a page relative to its site root, the form stored in page.path.
+ * The host is compared case-insensitively and with or without "www.", the scheme is ignored,
+ * fragments, dot segments, repeated and trailing slashes are dropped.
+ */
+public final class PagePath {
+
+    private PagePath() {
+    }
+
+    /**
+     * Returns the normalized path of {@code url} under {@code siteUrl}, or null when the url
+     * is malformed or belongs to another site. Paths that are already relative are normalized.
+     */
+    public static String relativize(String siteUrl, String url) {
+        URI site;
+        URI target;
+        try {
+            site = new URI(siteUrl.trim());
+            target = new URI(url.trim()).normalize();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        if (target.getHost() == null) {
+            return target.getScheme() == null && target.getRawPath() != null && target.getRawPath().startsWith("/")
+                    ? normalize(target.getRawPath(), target.getRawQuery())
+                    : null;
+        }
+        if (!isHttp(target.getScheme()) || !sameHost(site, target)) {
+            return null;
+        }
+        String path = normalize(target.getRawPath(), target.getRawQuery());
+        String root = site.getRawPath() == null ? "" : trimSlashes(site.getRawPath());
+        if (root.isEmpty()) {
+            return path;
+        }
+        String prefix = "/" + root;
+        if (path.equals(prefix)) {
+            return "/";
+        }
+        return path.startsWith(prefix + "/") ? path.substring(prefix.length()) : null;
+    }
+
+    /**
+     * Site url without a trailing slash, so that site url + path is the page url.
+     */
+    public static String siteRoot(String siteUrl) {
+        return siteUrl.endsWith("/") ? siteUrl.substring(0, siteUrl.length() - 1) : siteUrl;
+    }
+
+    /**
+     * Scheme, host and port of the site url, where host-wide files such as robots.txt live.
+     */
+    public static String origin(String siteUrl) {
+        try {
+            URI site = new URI(siteUrl.trim());
+            if (site.getScheme() != null && site.getRawAuthority() != null) {
+                return site.getScheme() + "://" + site.getRawAuthority();
+            }
+        } catch (URISyntaxException ignored) {
+        }
+        return siteRoot(siteUrl);
+    }
+
+    /**
+     * Path and query of the url exactly as they are requested from the server, the form robots.txt
+     * rules are matched against, or null when the url is malformed.
+     */
+    public static String requestPath(String url) {
+        URI target;
+        try {
+            target = new URI(url.trim());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        String rawPath = target.getRawPath();
+        String path = rawPath == null || rawPath.isEmpty() ? "/" : rawPath;
+        return target.getRawQuery() == null ? path : path + "?" + target.getRawQuery();
+    }
+
+    private static String normalize(String rawPath, String rawQuery) {
+        StringBuilder path = new StringBuilder();
+        for (String segment : (rawPath == null ? "" : rawPath).split("/")) {
+            if (!segment.isEmpty() && !segment.equals(".") && !segment.equals("..")) {
+                path.append('/').append(segment);
+            }
+        }
+        if (path.length() == 0) {
+            path.append('/');
+        }
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            path.append('?').append(rawQuery);
+        }
+        return path.toString();
+    }
+
+    private static boolean sameHost(URI site, URI target) {
+        if (site.getHost() == null || !stripWww(site.getHost()).equalsIgnoreCase(stripWww(target.getHost()))) {
+            return false;
+        }
+        return site.getPort() == -1 || target.getPort() == -1 || site.getPort() == target.getPort();
+    }
+
+    private static boolean isHttp(String scheme) {
+        return "http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme);
+    }
+
+    private static String stripWww(String host) {
+        return host.regionMatches(true, 0, "www.", 0, 4) ? host.substring(4) : host;
+    }
+
+    private static String trimSlashes(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+}
@@ -0,0 +1,29 @@
+package searchengine.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 64-bit hash of a page path (FNV-1a over UTF-8 bytes with a MurmurHash3 finalizer),
+ * stored next to the TEXT path column so lookups can use an index.
+ */
+public final class PathHash {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private PathHash() {
+    }
+
+    public static long of(String path) {
+        long hash = FNV_OFFSET;
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,171 @@
+package searchengine.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The rules of a robots.txt that apply to one crawler. The group of the longest user-agent
+ * token contained in the crawler's name applies, otherwise the "*" group. Of the Allow and
+ * Disallow patterns matching a path the longest wins, Allow on a tie; patterns support
+ * "*" and a trailing "$".
+ */
+public final class RobotsRules {
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(List.of(), -1, List.of());
+
+    private record Rule(String pattern, boolean allow) {
+    }
+
+    private final List<Rule> rules;
+    private final long crawlDelayMs;
+    private final List<String> sitemaps;
+
+    private RobotsRules(List<Rule> rules, long crawlDelayMs, List<String> sitemaps) {
+        this.rules = rules;
+        this.crawlDelayMs = crawlDelayMs;
+        this.sitemaps = sitemaps;
+    }
+
+    public static RobotsRules parse(String text, String agent) {
+        String name = agent.toLowerCase(Locale.ROOT);
+        List<Rule> matchedRules = new ArrayList<>();
+        List<Rule> wildcardRules = new ArrayList<>();
+        long matchedDelay = -1;
+        long wildcardDelay = -1;
+        int matchedLength = 0;
+        List<String> sitemaps = new ArrayList<>();
+
+        List<String> groupAgents = new ArrayList<>();
+        boolean inRules = false;
+        for (String line : text.split("\r\n|\r|\n")) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            switch (field) {
+                case "user-agent" -> {
+                    if (inRules) {
+                        groupAgents.clear();
+                        inRules = false;
+                    }
+                    groupAgents.add(value.toLowerCase(Locale.ROOT));
+                }
+                case "allow", "disallow", "crawl-delay" -> {
+                    inRules = true;
+                    int length = matchLength(groupAgents, name);
+                    boolean wildcard = groupAgents.contains("*");
+                    if (length > matchedLength) {
+                        // a more specific group replaces what was collected for a less specific one
+                        matchedRules.clear();
+                        matchedDelay = -1;
+                        matchedLength = length;
+                    }
+                    boolean matched = length > 0 && length == matchedLength;
+                    if (!matched && !wildcard) {
+                        continue;
+                    }
+                    if (field.equals("crawl-delay")) {
+                        long delay = parseDelayMs(value);
+                        if (matched) {
+                            matchedDelay = delay;
+                        } else {
+                            wildcardDelay = delay;
+                        }
+                    } else if (!value.isEmpty()) {
+                        // an empty Disallow allows everything, which is the default anyway
+                        (matched ? matchedRules : wildcardRules).add(new Rule(value, field.equals("allow")));
+                    }
+                }
+                case "sitemap" -> {
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        List<Rule> rules = matchedLength > 0 ? matchedRules : wildcardRules;
+        rules.sort(Comparator.comparingInt((Rule rule) -> rule.pattern().length()).reversed()
+                .thenComparing(Rule::allow, Comparator.reverseOrder()));
+        return new RobotsRules(List.copyOf(rules), matchedLength > 0 ? matchedDelay : wildcardDelay, List.copyOf(sitemaps));
+    }
+
+    /**
+     * Path is host-absolute with its query, as {@link PagePath#requestPath} returns it.
+     */
+    public boolean isAllowed(String path) {
+        for (Rule rule : rules) {
+            if (matches(rule.pattern(), path)) {
+                return rule.allow();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Crawl-delay in milliseconds, or -1 when the robots.txt sets none.
+     */
+    public long getCrawlDelayMs() {
+        return crawlDelayMs;
+    }
+
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    private static int matchLength(List<String> groupAgents, String name) {
+        int length = 0;
+        for (String groupAgent : groupAgents) {
+            if (!groupAgent.equals("*") && !groupAgent.isEmpty() && name.contains(groupAgent)) {
+                length = Math.max(length, groupAgent.length());
+            }
+        }
+        return length;
+    }
+
+    private static long parseDelayMs(String value) {
+        try {
+            return Math.max(0, Math.round(Double.parseDouble(value) * 1000));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static boolean matches(String pattern, String path) {
+        boolean anchored = pattern.endsWith("$");
+        int patternLength = anchored ? pattern.length() - 1 : pattern.length();
+        int p = 0;
+        int s = 0;
+        int starP = -1;
+        int starS = 0;
+        while (s < path.length()) {
+            if (p == patternLength && !anchored) {
+                return true;
+            }
+            if (p < patternLength && pattern.charAt(p) == '*') {
+                starP = p++;
+                starS = s;
+            } else if (p < patternLength && pattern.charAt(p) == path.charAt(s)) {
+                p++;
+                s++;
+            } else if (starP >= 0) {
+                p = starP + 1;
+                s = ++starS;
+            } else {
+                return false;
+            }
+        }
+        while (p < patternLength && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == patternLength;
+    }
+}
@@ -0,0 +1,35 @@
+package searchengine.utils;
+
+import java.util.Map;
+
+/**
+ * 64-bit SimHash of a weighted term set: pages whose terms mostly coincide get fingerprints
+ * that differ in few bits, so near-duplicates are found by Hamming distance.
+ */
+public final class SimHash {
+    private SimHash() {
+    }
+
+    public static long of(Map<String, Float> weights) {
+        float[] votes = new float[Long.SIZE];
+        for (Map.Entry<String, Float> entry : weights.entrySet()) {
+            // any well-mixed 64-bit string hash does, the path hash is one
+            long hash = PathHash.of(entry.getKey());
+            float weight = entry.getValue();
+            for (int bit = 0; bit < Long.SIZE; bit++) {
+                votes[bit] += ((hash >>> bit) & 1) != 0 ? weight : -weight;
+            }
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (votes[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
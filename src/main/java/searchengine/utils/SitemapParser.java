@@ -0,0 +1,140 @@
+package searchengine.utils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming parser of sitemap.xml files, both url sets and sitemap indexes, plain or gzipped.
+ * Entries are handed out as they are read, so a sitemap is never held in memory.
+ */
+public final class SitemapParser {
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * A page listed in a sitemap; lastModified is null when not given, priority defaults to 0.5.
+     */
+    public record Entry(String url, Instant lastModified, float priority) {
+    }
+
+    private SitemapParser() {
+    }
+
+    /**
+     * Pages go to {@code urls}, nested sitemaps of an index to {@code sitemaps}.
+     */
+    public static void parse(InputStream body, Consumer<Entry> urls, Consumer<String> sitemaps) throws IOException {
+        InputStream in = new BufferedInputStream(body);
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        // sitemap.xml.gz is usually served as a file, without a Content-Encoding to decode it by
+        if (first == 0x1f && second == 0x8b) {
+            in = new GZIPInputStream(in);
+        }
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                String loc = null;
+                String lastmod = null;
+                String priority = null;
+                String namespace = null;
+                int depth = 0;
+                // depth of the url or sitemap element being read, 0 outside of one
+                int entryDepth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamReader.START_ELEMENT) {
+                        depth++;
+                        String name = reader.getLocalName();
+                        if (depth == 1) {
+                            namespace = namespaceOf(reader);
+                        } else if (depth == 2 && (name.equals("url") || name.equals("sitemap"))
+                                && namespaceOf(reader).equals(namespace)) {
+                            entryDepth = depth;
+                            loc = null;
+                            lastmod = null;
+                            priority = null;
+                        } else if (entryDepth > 0 && depth == entryDepth + 1 && namespaceOf(reader).equals(namespace)) {
+                            // extensions such as image:loc live in their own namespace or deeper down
+                            switch (name) {
+                                case "loc" -> loc = reader.getElementText().trim();
+                                case "lastmod" -> lastmod = reader.getElementText().trim();
+                                case "priority" -> priority = reader.getElementText().trim();
+                                default -> {
+                                }
+                            }
+                            if (reader.isEndElement()) {
+                                depth--;
+                            }
+                        }
+                    } else if (event == XMLStreamReader.END_ELEMENT) {
+                        if (depth == entryDepth) {
+                            entryDepth = 0;
+                            if (loc != null && !loc.isEmpty()) {
+                                if (reader.getLocalName().equals("url")) {
+                                    urls.accept(new Entry(loc, parseLastModified(lastmod), parsePriority(priority)));
+                                } else {
+                                    sitemaps.accept(loc);
+                                }
+                            }
+                        }
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed sitemap: " + e.getMessage(), e);
+        }
+    }
+
+    private static String namespaceOf(XMLStreamReader reader) {
+        String namespace = reader.getNamespaceURI();
+        return namespace == null ? "" : namespace;
+    }
+
+    private static Instant parseLastModified(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            try {
+                // W3C datetime also allows a bare date, or a time without seconds
+                return LocalDate.parse(value.substring(0, Math.min(10, value.length()))).atStartOfDay(ZoneOffset.UTC).toInstant();
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static float parsePriority(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0.5f;
+        }
+        try {
+            return Math.max(0f, Math.min(1f, Float.parseFloat(value)));
+        } catch (NumberFormatException e) {
+            return 0.5f;
+        }
+    }
+}
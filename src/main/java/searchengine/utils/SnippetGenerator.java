@@ -0,0 +1,49 @@
+package searchengine.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class SnippetGenerator {
+    public static final String NO_TITLE = "Без заголовка";
+
+    public String extractTitle(String content) {
+        int titleStart = content.indexOf("<title>") + 7;
+        int titleEnd = content.indexOf("</title>");
+        if (titleStart != -1 && titleEnd != -1) {
+            return content.substring(titleStart, titleEnd);
+        }
+        return NO_TITLE;
+    }
+
+    public String generateSnippet(String content, List<String> lemmas) {
+        String lowerContent = content.toLowerCase();
+        int snippetLength = 300;
+        int start = Integer.MAX_VALUE;
+        int end = 0;
+
+        for (String lemma : lemmas) {
+            int index = lowerContent.indexOf(lemma.toLowerCase());
+            if (index != -1) {
+                start = Math.min(start, index);
+                end = Math.max(end, index + lemma.length());
+            }
+        }
+
+        if (start == Integer.MAX_VALUE) {
+            return content.substring(0, Math.min( snippetLength, content.length()));
+        }
+
+        start = Math.max(0, start - snippetLength / 2);
+        end = Math.min(content.length(), end + snippetLength / 2);
+
+        String snippet = content.substring(start, end);
+
+        for (String lemma : lemmas) {
+            snippet = snippet.replaceAll("(?i)" + lemma, "<b>" + lemma + "</b>");
+        }
+
+        return snippet;
+    }
+}
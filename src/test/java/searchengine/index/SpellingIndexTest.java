@@ -0,0 +1,68 @@
+package searchengine.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpellingIndexTest {
+
+    @Test
+    void distanceCountsTranspositionsOnce() {
+        assertEquals(0, SpellingIndex.distance("поиск", "поиск", 2));
+        assertEquals(1, SpellingIndex.distance("поиск", "пиоск", 2));
+        assertEquals(1, SpellingIndex.distance("search", "serch", 2));
+        assertEquals(2, SpellingIndex.distance("search", "saerhc", 2));
+        assertEquals(3, SpellingIndex.distance("search", "index", 2));
+        assertEquals(2, SpellingIndex.distance("", "ab", 2));
+    }
+
+    @Test
+    void lookupOrdersByDistanceThenWeight() {
+        SpellingIndex index = SpellingIndex.build(Map.of(
+                "house", 10,
+                "horse", 50,
+                "hose", 20,
+                "mouse", 30,
+                "houses", 5,
+                "garden", 100), 2, 7);
+
+        List<SpellingIndex.Candidate> candidates = index.lookup("house", 1, 10);
+
+        assertEquals(List.of(
+                new SpellingIndex.Candidate("house", 0, 10),
+                new SpellingIndex.Candidate("horse", 1, 50),
+                new SpellingIndex.Candidate("mouse", 1, 30),
+                new SpellingIndex.Candidate("hose", 1, 20),
+                new SpellingIndex.Candidate("houses", 1, 5)), candidates);
+        assertEquals(List.of(new SpellingIndex.Candidate("house", 0, 10), new SpellingIndex.Candidate("horse", 1, 50)),
+                index.lookup("house", 1, 2));
+        assertEquals(List.of(new SpellingIndex.Candidate("hose", 0, 20)), index.lookup("hose", 0, 10));
+    }
+
+    @Test
+    void lookupIsCappedByMaxDistance() {
+        SpellingIndex index = SpellingIndex.build(Map.of("search", 1), 1, 7);
+
+        assertEquals(List.of(new SpellingIndex.Candidate("search", 1, 1)), index.lookup("serach", 2, 10));
+        assertTrue(index.lookup("sarech", 2, 10).isEmpty());
+    }
+
+    @Test
+    void typosPastThePrefixAreFound() {
+        SpellingIndex index = SpellingIndex.build(Map.of("индексация", 3, "индекс", 7), 2, 4);
+
+        assertEquals(List.of(new SpellingIndex.Candidate("индексация", 1, 3)), index.lookup("индексацыя", 2, 10));
+        assertEquals(List.of(new SpellingIndex.Candidate("индекс", 1, 7)), index.lookup("инднкс", 2, 10));
+    }
+
+    @Test
+    void emptyIndexFindsNothing() {
+        assertEquals(0, SpellingIndex.EMPTY.size());
+        assertTrue(SpellingIndex.EMPTY.lookup("word", 2, 10).isEmpty());
+        assertTrue(SpellingIndex.build(Map.of("word", 1), 2, 7).lookup("word", 2, 0).isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package searchengine.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestionIndexTest {
+
+    @Test
+    void completeMatchesBruteForce() {
+        Random random = new Random(42);
+        Map<String, Integer> weightedTerms = new HashMap<>();
+        while (weightedTerms.size() < 3000) {
+            StringBuilder term = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int i = 0; i < length; i++) {
+                term.append((char) ('a' + random.nextInt(4)));
+            }
+            weightedTerms.put(term.toString(), random.nextInt(50));
+        }
+        SuggestionIndex index = SuggestionIndex.build(weightedTerms);
+        assertEquals(weightedTerms.size(), index.size());
+
+        for (String prefix : List.of("", "a", "b", "ab", "cad", "dddd", "abcda")) {
+            for (int limit : new int[]{1, 5, 40, 5000}) {
+                List<SuggestionIndex.Suggestion> expected = weightedTerms.entrySet().stream()
+                        .filter(entry -> entry.getKey().startsWith(prefix))
+                        .map(entry -> new SuggestionIndex.Suggestion(entry.getKey(), entry.getValue()))
+                        .sorted(Comparator.comparingInt(SuggestionIndex.Suggestion::weight).reversed())
+                        .limit(limit)
+                        .toList();
+                List<SuggestionIndex.Suggestion> actual = index.complete(prefix, limit);
+
+                // terms of equal weight may come in any order, so compare weights and membership
+                assertEquals(expected.stream().map(SuggestionIndex.Suggestion::weight).toList(),
+                        actual.stream().map(SuggestionIndex.Suggestion::weight).toList(), prefix + " " + limit);
+                for (SuggestionIndex.Suggestion suggestion : actual) {
+                    assertTrue(suggestion.term().startsWith(prefix));
+                    assertEquals(weightedTerms.get(suggestion.term()).intValue(), suggestion.weight());
+                }
+                assertEquals(actual.size(), actual.stream().map(SuggestionIndex.Suggestion::term).distinct().count());
+            }
+        }
+    }
+
+    @Test
+    void completeReturnsHeaviestFirst() {
+        SuggestionIndex index = SuggestionIndex.build(Map.of(
+                "поиск", 5,
+                "поисковик", 12,
+                "поисковый", 8,
+                "показ", 20,
+                "индекс", 30));
+
+        assertEquals(List.of(
+                new SuggestionIndex.Suggestion("поисковик", 12),
+                new SuggestionIndex.Suggestion("поисковый", 8)), index.complete("поиск", 2));
+        assertEquals(List.of(new SuggestionIndex.Suggestion("показ", 20)), index.complete("пок", 10));
+    }
+
+    @Test
+    void noMatchesOrZeroLimitGiveNothing() {
+        SuggestionIndex index = SuggestionIndex.build(Map.of("search", 1, "index", 2));
+
+        assertTrue(index.complete("query", 10).isEmpty());
+        assertTrue(index.complete("zz", 10).isEmpty());
+        assertTrue(index.complete("", 0).isEmpty());
+        assertTrue(SuggestionIndex.EMPTY.complete("", 10).isEmpty());
+    }
+}
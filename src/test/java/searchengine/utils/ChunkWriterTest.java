@@ -0,0 +1,119 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkWriterTest {
+    private static final int MAGIC = 0x54455354;
+    private static final long[] LONGS = {0, 1, -1, 63, -64, 64, -65, 300, Integer.MAX_VALUE, Integer.MIN_VALUE,
+            Long.MAX_VALUE, Long.MIN_VALUE};
+
+    @Test
+    void valuesRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkWriter writer = new ChunkWriter(out);
+        writer.writeHeader(MAGIC, 1);
+        writer.beginSection(1);
+        for (long value : LONGS) {
+            writer.writeLong(value);
+            writer.writeNullableLong(value);
+            writer.endRow();
+        }
+        writer.writeNullableLong(null);
+        writer.writeFloat(-2.5f);
+        writer.writeString(null);
+        writer.writeString("");
+        writer.writeString("поиск search");
+        writer.endRow();
+        writer.endSection();
+        writer.beginSection(2);
+        writer.endSection();
+        writer.finish(0);
+
+        ChunkReader reader = new ChunkReader(new ByteArrayInputStream(out.toByteArray()));
+        reader.readHeader(MAGIC, 1);
+        assertEquals(1, reader.nextSection());
+        for (long value : LONGS) {
+            assertTrue(reader.nextRow());
+            assertEquals(value, reader.readLong());
+            assertEquals(Long.valueOf(value), reader.readNullableLong());
+        }
+        assertTrue(reader.nextRow());
+        assertNull(reader.readNullableLong());
+        assertEquals(-2.5f, reader.readFloat());
+        assertNull(reader.readString());
+        assertEquals("", reader.readString());
+        assertEquals("поиск search", reader.readString());
+        assertFalse(reader.nextRow());
+        assertEquals(2, reader.nextSection());
+        assertFalse(reader.nextRow());
+        assertEquals(0, reader.nextSection());
+    }
+
+    @Test
+    void sectionSpansSeveralChunks() throws IOException {
+        int rows = 3 * ChunkWriter.CHUNK_BYTES / 100;
+        String text = "x".repeat(95);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkWriter writer = new ChunkWriter(out);
+        writer.writeHeader(MAGIC, 1);
+        writer.beginSection(1);
+        for (int i = 0; i < rows; i++) {
+            writer.writeLong(i);
+            writer.writeString(text);
+            writer.endRow();
+        }
+        writer.endSection();
+        writer.finish(0);
+
+        ChunkReader reader = new ChunkReader(new ByteArrayInputStream(out.toByteArray()));
+        reader.readHeader(MAGIC, 1);
+        assertEquals(1, reader.nextSection());
+        int read = 0;
+        while (reader.nextRow()) {
+            assertEquals(read++, reader.readInt());
+            assertEquals(text, reader.readString());
+        }
+        assertEquals(rows, read);
+    }
+
+    @Test
+    void corruptedChunkFailsTheChecksum() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkWriter writer = new ChunkWriter(out);
+        writer.writeHeader(MAGIC, 1);
+        writer.beginSection(1);
+        writer.writeString("payload");
+        writer.endRow();
+        writer.endSection();
+        writer.finish(0);
+        byte[] bytes = out.toByteArray();
+        // header (8), section tag (1), row count (4), length (4), then the payload
+        bytes[8 + 1 + 4 + 4 + 2] ^= 0x01;
+
+        ChunkReader reader = new ChunkReader(new ByteArrayInputStream(bytes));
+        reader.readHeader(MAGIC, 1);
+        reader.nextSection();
+        IOException error = assertThrows(IOException.class, reader::nextRow);
+        assertEquals("Chunk checksum mismatch", error.getMessage());
+    }
+
+    @Test
+    void otherVersionIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ChunkWriter(out).writeHeader(MAGIC, 2);
+
+        ChunkReader reader = new ChunkReader(new ByteArrayInputStream(out.toByteArray()));
+        IOException error = assertThrows(IOException.class, () -> reader.readHeader(MAGIC, 1));
+        assertEquals("Unsupported archive version", error.getMessage());
+    }
+}
@@ -0,0 +1,97 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RobotsRulesTest {
+
+    @Test
+    void longestPatternWinsAndAllowWinsATie() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /private
+                Allow: /private/public
+                Disallow: /same
+                Allow: /same
+                """, "SearchBot/1.0");
+
+        assertFalse(rules.isAllowed("/private/page"));
+        assertTrue(rules.isAllowed("/private/public/page"));
+        assertTrue(rules.isAllowed("/same/page"));
+        assertTrue(rules.isAllowed("/other"));
+    }
+
+    @Test
+    void wildcardsAndEndAnchor() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /*.pdf$
+                Disallow: /search*q=
+                Disallow: /exact$
+                """, "SearchBot");
+
+        assertFalse(rules.isAllowed("/docs/file.pdf"));
+        assertTrue(rules.isAllowed("/docs/file.pdf?download=1"));
+        assertFalse(rules.isAllowed("/search/results?page=2&q=term"));
+        assertTrue(rules.isAllowed("/search/results?page=2"));
+        assertFalse(rules.isAllowed("/exact"));
+        assertTrue(rules.isAllowed("/exact/"));
+    }
+
+    @Test
+    void matchesPatterns() {
+        assertTrue(RobotsRules.matches("/", "/anything"));
+        assertTrue(RobotsRules.matches("/a*b*c", "/axxbyyc"));
+        assertTrue(RobotsRules.matches("/a*", "/a"));
+        assertTrue(RobotsRules.matches("*$", "/"));
+        assertFalse(RobotsRules.matches("/a*b$", "/axbx"));
+        assertFalse(RobotsRules.matches("/abc", "/ab"));
+    }
+
+    @Test
+    void mostSpecificAgentGroupReplacesWildcardGroup() {
+        String text = """
+                User-agent: *
+                Disallow: /
+                Crawl-delay: 5
+
+                User-agent: bot
+                Disallow: /bot
+
+                User-agent: searchbot
+                User-agent: other
+                Disallow: /searchbot
+                Crawl-delay: 0.5
+
+                Sitemap: https://example.com/sitemap.xml
+                """;
+        RobotsRules rules = RobotsRules.parse(text, "SearchBot/1.0");
+
+        assertTrue(rules.isAllowed("/page"));
+        assertTrue(rules.isAllowed("/bot"));
+        assertFalse(rules.isAllowed("/searchbot/page"));
+        assertEquals(500, rules.getCrawlDelayMs());
+        assertEquals(List.of("https://example.com/sitemap.xml"), rules.getSitemaps());
+
+        RobotsRules fallback = RobotsRules.parse(text, "Crawler");
+        assertFalse(fallback.isAllowed("/page"));
+        assertEquals(5000, fallback.getCrawlDelayMs());
+    }
+
+    @Test
+    void emptyDisallowAllowsEverything() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow:
+                """, "SearchBot");
+
+        assertTrue(rules.isAllowed("/"));
+        assertTrue(rules.isAllowed("/page?id=1"));
+        assertEquals(-1, rules.getCrawlDelayMs());
+    }
+}
@@ -0,0 +1,69 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SitemapParserTest {
+
+    @Test
+    void imageLocDoesNotReplacePageLoc() throws IOException {
+        String xml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9"
+                        xmlns:image="http://www.google.com/schemas/sitemap-image/1.1">
+                  <url>
+                    <loc>https://example.com/page</loc>
+                    <lastmod>2024-05-01</lastmod>
+                    <image:image>
+                      <image:loc>https://example.com/picture.jpg</image:loc>
+                    </image:image>
+                    <priority>0.8</priority>
+                  </url>
+                  <url>
+                    <image:image>
+                      <image:loc>https://example.com/orphan.jpg</image:loc>
+                    </image:image>
+                    <loc>https://example.com/other</loc>
+                  </url>
+                </urlset>
+                """;
+        List<SitemapParser.Entry> urls = new ArrayList<>();
+        List<String> sitemaps = new ArrayList<>();
+
+        SitemapParser.parse(stream(xml), urls::add, sitemaps::add);
+
+        assertEquals(List.of(
+                new SitemapParser.Entry("https://example.com/page", Instant.parse("2024-05-01T00:00:00Z"), 0.8f),
+                new SitemapParser.Entry("https://example.com/other", null, 0.5f)), urls);
+        assertEquals(List.of(), sitemaps);
+    }
+
+    @Test
+    void sitemapIndexWithoutNamespace() throws IOException {
+        String xml = """
+                <sitemapindex>
+                  <sitemap><loc>https://example.com/sitemap-1.xml</loc></sitemap>
+                  <sitemap><loc> https://example.com/sitemap-2.xml </loc></sitemap>
+                </sitemapindex>
+                """;
+        List<SitemapParser.Entry> urls = new ArrayList<>();
+        List<String> sitemaps = new ArrayList<>();
+
+        SitemapParser.parse(stream(xml), urls::add, sitemaps::add);
+
+        assertEquals(List.of(), urls);
+        assertEquals(List.of("https://example.com/sitemap-1.xml", "https://example.com/sitemap-2.xml"), sitemaps);
+    }
+
+    private static ByteArrayInputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.strip().getBytes(StandardCharsets.UTF_8));
+    }
+}